@@ -0,0 +1,77 @@
+package com.performan.benchmark;
+
+import com.performan.optimization.ChunkLoadScheduler;
+import com.performan.optimization.LongChunkSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The chunk side of CPUReduce: filling and draining the load queue, and the
+ * loaded-chunk set lookups done for every polled task.
+ */
+@State(Scope.Thread)
+public class ChunkQueueBenchmark {
+    @Param({"8", "16"})
+    public int radius;
+
+    private ChunkLoadScheduler scheduler;
+    private LongChunkSet loaded;
+    private int side;
+    private int lookup = 0;
+    private float yaw = 0;
+
+    @Setup
+    public void setup() {
+        side = radius * 2 + 1;
+        scheduler = new ChunkLoadScheduler(side * side);
+        loaded = new LongChunkSet(side * side);
+
+        // Every other chunk already loaded
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                if (((x ^ z) & 1) == 0) loaded.add(x, z);
+            }
+        }
+    }
+
+    // Queues the whole render distance around a turning viewer and drains it again
+    @Benchmark
+    public int fillAndDrain() {
+        yaw = (yaw + 20.0f) % 360.0f;
+        scheduler.updateViewer(0.5, 0.5, yaw);
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                scheduler.offer(x, z, 1, 0);
+            }
+        }
+
+        int skipped = 0;
+        ChunkLoadScheduler.Task task;
+        while ((task = scheduler.poll()) != null) {
+            if (loaded.contains(task.getX(), task.getZ())) skipped++;
+        }
+        return skipped;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        int i = lookup++;
+        int x = i % side - radius;
+        int z = (i / side) % side - radius;
+        return loaded.contains(x, z);
+    }
+
+    // Add, remove and evict, as when the player crosses a chunk border
+    @Benchmark
+    public int churn() {
+        int i = lookup++;
+        int x = radius + 1 + (i & 7);
+        int z = i % side - radius;
+        loaded.add(x, z);
+        loaded.remove(x, z);
+        return loaded.evictOutside(0, 0, radius, 64);
+    }
+}
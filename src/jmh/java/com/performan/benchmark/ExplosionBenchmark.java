@@ -0,0 +1,58 @@
+package com.performan.benchmark;
+
+import com.performan.optimization.ExplosionSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.Random;
+
+/**
+ * ExplosionSolver against the plain vanilla loop on a synthetic world: air above
+ * y=64, stone below with a scatter of obsidian.
+ */
+@State(Scope.Thread)
+public class ExplosionBenchmark {
+    private static final float STONE = 6.0f;
+    private static final float OBSIDIAN = 2000.0f;
+
+    @Param({"4", "8", "16"})
+    public float size;
+
+    private final ExplosionSolver solver = new ExplosionSolver();
+    private final float[] rayRandoms = new float[ExplosionSolver.RAY_COUNT];
+    private final ExplosionSolver.BlockAccess world = new SyntheticWorld();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < rayRandoms.length; i++) {
+            rayRandoms[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public long[] reference() {
+        return ExplosionSolver.solveReference(0.5, 64.5, 0.5, size, rayRandoms, world, null);
+    }
+
+    @Benchmark
+    public long[] solver() {
+        return solver.solve(0.5, 64.5, 0.5, size, rayRandoms, world, null, false);
+    }
+
+    @Benchmark
+    public long[] solverParallel() {
+        return solver.solve(0.5, 64.5, 0.5, size, rayRandoms, world, null, true);
+    }
+
+    private static class SyntheticWorld implements ExplosionSolver.BlockAccess {
+        @Override
+        public float getResistance(int x, int y, int z) {
+            if (y >= 64 || y < 0) return ExplosionSolver.AIR;
+            int hash = (x * 73856093) ^ (y * 19349663) ^ (z * 83492791);
+            return (hash & 63) == 0 ? OBSIDIAN : STONE;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.performan.benchmark;
+
+import com.performan.optimization.FrameTimeTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.Random;
+
+/**
+ * Per-frame cost of the frame time window: one sample in, one percentile out,
+ * which is what FPSDrop and CPUReduce do every frame.
+ */
+@State(Scope.Thread)
+public class FrameTimeBenchmark {
+    private static final int SAMPLES = 1024; // power of two for the mask below
+
+    private final long[] frames = new long[SAMPLES];
+    private FrameTimeTracker tracker;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        // Mostly 60 FPS with occasional stutters
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            frames[i] = random.nextInt(20) == 0 ? 50000000L : 16000000L + random.nextInt(2000000);
+        }
+        tracker = new FrameTimeTracker(120);
+        for (int i = 0; i < SAMPLES; i++) {
+            tracker.recordFrame(frames[i]);
+        }
+    }
+
+    @Benchmark
+    public long recordAndP95() {
+        tracker.recordFrame(frames[next++ & (SAMPLES - 1)]);
+        return tracker.getP95FrameNanos();
+    }
+
+    @Benchmark
+    public double averageFPS() {
+        return tracker.getAverageFPS();
+    }
+}
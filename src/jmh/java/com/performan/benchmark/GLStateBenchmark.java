@@ -0,0 +1,39 @@
+package com.performan.benchmark;
+
+import com.performan.optimization.GLStateTracker;
+import org.lwjgl.opengl.GL11;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The redundant-call filtering of the GL state tracker.
+ */
+@State(Scope.Thread)
+public class GLStateBenchmark {
+    private NullBackend backend;
+    private GLStateTracker tracker;
+
+    @Setup
+    public void setup() {
+        backend = new NullBackend();
+        tracker = new GLStateTracker(backend);
+
+        tracker.enable(GLStateTracker.CAP_DEPTH);
+        tracker.enable(GLStateTracker.CAP_TEXTURE_2D);
+        tracker.disable(GLStateTracker.CAP_BLEND);
+        tracker.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA, GL11.GL_ONE, GL11.GL_ZERO);
+        tracker.depthFunc(GL11.GL_LEQUAL);
+        tracker.alphaFunc(GL11.GL_GREATER, 0.1f);
+    }
+
+    @Benchmark
+    public long redundantCalls() {
+        tracker.enable(GLStateTracker.CAP_DEPTH);
+        tracker.depthFunc(GL11.GL_LEQUAL);
+        tracker.bindTexture(1);
+        tracker.bindTexture(1);
+        return backend.calls;
+    }
+}
@@ -0,0 +1,43 @@
+package com.performan.benchmark;
+
+import com.performan.optimization.GLStateTracker;
+
+/** Headless stand-in for the LWJGL backend, counts the calls that would reach the driver. */
+public class NullBackend implements GLStateTracker.Backend {
+    public long calls = 0;
+
+    @Override
+    public void setCapability(int capability, boolean enabled) {
+        calls++;
+    }
+
+    @Override
+    public void hint(int target, int mode) {
+        calls++;
+    }
+
+    @Override
+    public void blendFunc(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+        calls++;
+    }
+
+    @Override
+    public void depthFunc(int func) {
+        calls++;
+    }
+
+    @Override
+    public void alphaFunc(int func, float ref) {
+        calls++;
+    }
+
+    @Override
+    public void bindTexture(int texture) {
+        calls++;
+    }
+
+    @Override
+    public void texParameteri(int target, int pname, int param) {
+        calls++;
+    }
+}
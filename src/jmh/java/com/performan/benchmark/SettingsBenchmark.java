@@ -0,0 +1,47 @@
+package com.performan.benchmark;
+
+import com.performan.optimization.QualityGovernor;
+import net.minecraft.client.settings.GameSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Settings application as done when CustomVideoSettings saves and on every governor
+ * level change. The no-argument GameSettings constructor needs no running client.
+ */
+@State(Scope.Thread)
+public class SettingsBenchmark {
+    private final QualityGovernor governor = QualityGovernor.getInstance();
+    private GameSettings settings;
+    private long now = 0;
+    private int frame = 0;
+
+    @Setup
+    public void setup() {
+        settings = new GameSettings();
+        governor.setBaseline(12, 0, true, 4);
+        governor.setAdaptive(true);
+    }
+
+    @Benchmark
+    public boolean applyUnchanged() {
+        return governor.applyTo(settings);
+    }
+
+    @Benchmark
+    public boolean saveFromMenu() {
+        int renderDistance = 8 + (frame++ & 7);
+        governor.setBaseline(renderDistance, 0, true, 4);
+        return governor.applyTo(settings);
+    }
+
+    // Alternating fast and slow frames keep the controller moving between levels
+    @Benchmark
+    public boolean governorUpdate() {
+        now += 16000000L;
+        long frameNanos = (frame++ & 256) == 0 ? 16000000L : 40000000L;
+        return governor.update(frameNanos, now);
+    }
+}
@@ -3,22 +3,48 @@ package com.performan;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.settings.KeyBinding;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.client.FMLClientHandler;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.Mod.EventHandler;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLLoadCompleteEvent;
+import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.client.registry.ClientRegistry;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.ClientTickEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
 import org.lwjgl.input.Keyboard;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
 import net.minecraft.client.gui.GuiOptions;
 import net.minecraft.client.gui.GuiVideoSettings;
 import net.minecraftforge.client.event.GuiOpenEvent;
 import com.performan.gui.CustomVideoSettings;
 import com.performan.optimization.ExplosionReduce;
 import com.performan.optimization.CPUReduce;
+import com.performan.optimization.EntityCuller;
 import com.performan.optimization.FPSDrop;
+import com.performan.optimization.FrameTimeTracker;
+import com.performan.optimization.GLStateTracker;
+import com.performan.optimization.HotPathProfiler;
+import com.performan.optimization.MemoryManager;
+import com.performan.optimization.ParticleBudget;
+import com.performan.optimization.PlatformProfile;
+import com.performan.optimization.QualityGovernor;
+import com.performan.optimization.SettingsApplicator;
+import com.performan.optimization.SettingsWriter;
+import com.performan.optimization.TileEntityThrottle;
+import com.performan.optimization.StartupTimeline;
+import com.performan.optimization.TraceRecorder;
 import com.performan.optimization.OpenGL;
+import com.performan.texture.AnimationScheduler;
+import com.performan.texture.SafeTextureLoader;
+import com.performan.texture.SpriteDownsampler;
 
 @Mod(
     modid = MainModClass.MODID,
@@ -37,21 +63,60 @@ public class MainModClass {
         "Performan Optimizer"
     );
 
-    private int tickCounter = 0;
-    private static final int GARBAGE_COLLECTION_INTERVAL = 6000;
-    private boolean isAndroid;
+    // Remembers which tier preset was written into the user's settings
+    private static final String PRESET_FILE = "preset.properties";
+
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("MainModClass.onClientTick");
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final PlatformProfile platform = PlatformProfile.getInstance();
+    private final StartupTimeline timeline = StartupTimeline.getInstance();
+    private File directory;
+    private boolean presetApplied = false;
+    private boolean loadComplete = false;
+    private boolean startupFinished = false;
 
     @EventHandler
     public void preInit(FMLPreInitializationEvent event) {
-        isAndroid = System.getProperty("java.vendor", "").toLowerCase().contains("android");
+        Minecraft mc = Minecraft.getMinecraft();
+        directory = new File(mc.mcDataDir, "performan");
+        timeline.mark("launch");
+
+        // Everything below reads the tier, so it is settled first
+        platform.load(directory);
+        SpriteDownsampler.getInstance().load(directory);
+        timeline.mark("platform profile");
+
+        // Resources are first loaded after preInit, settling here spares reloading them
+        settleSettings(mc, directory);
+        timeline.mark("settings");
         
         MinecraftForge.EVENT_BUS.register(this);
-        MinecraftForge.EVENT_BUS.register(new ExplosionReduce());
-        MinecraftForge.EVENT_BUS.register(new CPUReduce());
+        MinecraftForge.EVENT_BUS.register(FrameTimeTracker.getInstance());
+        MinecraftForge.EVENT_BUS.register(QualityGovernor.getInstance());
+        MinecraftForge.EVENT_BUS.register(GLStateTracker.getInstance());
+        MinecraftForge.EVENT_BUS.register(ParticleBudget.getInstance());
+        MinecraftForge.EVENT_BUS.register(EntityCuller.getInstance());
+        MinecraftForge.EVENT_BUS.register(TileEntityThrottle.getInstance());
+        MinecraftForge.EVENT_BUS.register(MemoryManager.getInstance());
+        MinecraftForge.EVENT_BUS.register(HotPathProfiler.getInstance());
+        ClientRegistry.registerKeyBinding(HotPathProfiler.TOGGLE_OVERLAY);
+        ClientRegistry.registerKeyBinding(HotPathProfiler.EXPORT_CSV);
+        MinecraftForge.EVENT_BUS.register(TraceRecorder.getInstance());
+        MinecraftForge.EVENT_BUS.register(SettingsApplicator.getInstance());
+        MinecraftForge.EVENT_BUS.register(new SafeTextureLoader());
+        MinecraftForge.EVENT_BUS.register(AnimationScheduler.getInstance());
+        
+        ExplosionReduce explosionReduce = new ExplosionReduce();
+        CPUReduce cpuReduce = new CPUReduce();
+        MemoryManager.getInstance().register(explosionReduce);
+        MemoryManager.getInstance().register(cpuReduce);
+        MinecraftForge.EVENT_BUS.register(explosionReduce);
+        MinecraftForge.EVENT_BUS.register(cpuReduce);
         MinecraftForge.EVENT_BUS.register(new OpenGL());
         MinecraftForge.EVENT_BUS.register(new FPSDrop());
         
-        if (isAndroid) {
+        if (platform.isAndroid()) {
             // Core optimizations
             System.setProperty("fml.skipFirstTextureLoad", "true");
             System.setProperty("fml.ignorePatchDiscrepancies", "true");
@@ -61,8 +126,7 @@ public class MainModClass {
             System.setProperty("forge.forceDirectMemoryAccess", "false");
             System.setProperty("forge.enableGLDebugLog", "false");
             
-            // Disable features
-            System.setProperty("forge.disableTextureAnimations", "true");
+            // Disable features, texture animations are budgeted by AnimationScheduler instead
             System.setProperty("forge.disableModelLoading", "true");
             
             // LWJGL fixes
@@ -71,18 +135,81 @@ public class MainModClass {
             System.setProperty("org.lwjgl.util.Debug", "false");
             System.setProperty("org.lwjgl.opengl.Display.noinput", "false");
         }
+        timeline.mark("preInit");
     }
 
     @EventHandler
     public void init(FMLInitializationEvent event) {
-        Minecraft mc = Minecraft.getMinecraft();
-        applyBaseOptimizations(mc);
+        // Covers the first resource load
+        timeline.mark("init");
+    }
+
+    @EventHandler
+    public void postInit(FMLPostInitializationEvent event) {
+        timeline.mark("postInit");
+    }
+
+    @EventHandler
+    public void loadComplete(FMLLoadCompleteEvent event) {
+        // Every mod has bound its renderers by now
+        TileEntityThrottle.getInstance().install();
+        loadComplete = true;
+        timeline.mark("load complete");
+    }
+
+    private void settleSettings(Minecraft mc, File directory) {
+        PlatformProfile.Tier tier = platform.getTier();
+        // The preset is written once per tier, after that the user's own choices stand.
+        // It is only recorded once finishStartup has saved it to options.txt.
+        if (tier != readAppliedPreset(directory)) {
+            applyPreset(mc, tier);
+            presetApplied = true;
+        }
+        
+        // Hand the quality settings over to the governor, adapting them below the high tier
+        QualityGovernor governor = QualityGovernor.getInstance();
+        governor.setBaseline(mc.gameSettings);
+        governor.setAdaptive(tier != PlatformProfile.Tier.HIGH);
+        governor.applyTo(mc.gameSettings);
+        
+        // The resources about to be loaded match these settings
+        SettingsApplicator.getInstance().reset(mc.gameSettings);
+    }
+
+    // Runs on the first client tick or screen once FML has finished loading and read
+    // options.txt again, whatever that screen is
+    private void finishStartup(Minecraft mc) {
+        startupFinished = true;
+        QualityGovernor governor = QualityGovernor.getInstance();
+        if (presetApplied) {
+            // Saving is not possible while FML loads, so the reload brought back the old values
+            applyPreset(mc, platform.getTier());
+            governor.setBaseline(mc.gameSettings);
+            governor.applyTo(mc.gameSettings);
+            SettingsWriter writer = SettingsWriter.getInstance();
+            int written = writer.getWrittenCount();
+            writer.save(mc.gameSettings);
+            writer.flush();
+            // Otherwise the preset is applied again on the next launch
+            if (writer.getWrittenCount() > written) {
+                writeAppliedPreset(directory, platform.getTier());
+            }
+        } else {
+            // The reload is not a change by the user
+            governor.restore(mc.gameSettings);
+        }
+        // Acts only on what changed since preInit, usually nothing
+        SettingsApplicator.getInstance().submit(mc.gameSettings);
+
+        timeline.mark("first screen");
+        timeline.finish(directory, platform.getTier().name());
     }
 
-    private void applyBaseOptimizations(Minecraft mc) {
-        if (isAndroid) {
-            // Mobile-specific settings
+    private void applyPreset(Minecraft mc, PlatformProfile.Tier tier) {
+        if (tier == PlatformProfile.Tier.LOW) {
+            // Low-end and mobile settings
             mc.gameSettings.mipmapLevels = 0;
+            SpriteDownsampler.getInstance().setScale(SpriteDownsampler.SCALE_HALF);
             mc.gameSettings.renderDistanceChunks = 4;
             mc.gameSettings.fancyGraphics = false;
             mc.gameSettings.useVbo = false;
@@ -100,10 +227,24 @@ public class MainModClass {
             mc.gameSettings.enableVsync = false;
             mc.gameSettings.snooperEnabled = false;
             mc.gameSettings.showDebugProfilerChart = false;
-            mc.gameSettings.touchscreen = true;
+            mc.gameSettings.touchscreen = platform.isAndroid();
+        } else if (tier == PlatformProfile.Tier.MEDIUM) {
+            // Mid-range settings
+            mc.gameSettings.mipmapLevels = 2;
+            SpriteDownsampler.getInstance().setScale(SpriteDownsampler.SCALE_FULL);
+            mc.gameSettings.renderDistanceChunks = 6;
+            mc.gameSettings.fancyGraphics = false;
+            mc.gameSettings.useVbo = true;
+            mc.gameSettings.particleSetting = 1;
+            mc.gameSettings.enableVsync = false;
+            mc.gameSettings.ambientOcclusion = 1;
+            mc.gameSettings.fboEnable = true;
+            mc.gameSettings.clouds = 1;
+            mc.gameSettings.touchscreen = platform.isAndroid();
         } else {
-            // PC settings
+            // High-end settings
             mc.gameSettings.mipmapLevels = 4;
+            SpriteDownsampler.getInstance().setScale(SpriteDownsampler.SCALE_FULL);
             mc.gameSettings.renderDistanceChunks = 8;
             mc.gameSettings.fancyGraphics = true;
             mc.gameSettings.useVbo = true;
@@ -113,18 +254,54 @@ public class MainModClass {
             mc.gameSettings.fboEnable = true;
             mc.gameSettings.clouds = 2;
         }
-        
-        // Save settings immediately
-        mc.gameSettings.saveOptions();
-        
-        // Force a resource reload with safe settings
-        mc.refreshResources();
+    }
+
+    private static PlatformProfile.Tier readAppliedPreset(File directory) {
+        File file = new File(directory, PRESET_FILE);
+        if (!file.isFile()) return null;
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+            return PlatformProfile.Tier.valueOf(properties.getProperty("tier"));
+        } catch (Exception e) {
+            System.err.println("Failed to read applied preset: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeAppliedPreset(File directory, PlatformProfile.Tier tier) {
+        Properties properties = new Properties();
+        properties.setProperty("tier", tier.name());
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("Cannot create " + directory);
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(new File(directory, PRESET_FILE))) {
+            properties.store(out, "Tier preset last written to options.txt, delete to apply it again");
+        } catch (Exception e) {
+            System.err.println("Failed to write applied preset: " + e.getMessage());
+        }
     }
 
     @SubscribeEvent
     public void onClientTick(ClientTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    private void handleClientTick(ClientTickEvent event) {
         if (event.phase != Phase.END) return;
 
+        if (isReadyToFinish()) {
+            finishStartup(Minecraft.getMinecraft());
+        }
+
         if (TOGGLE_SETTINGS.isPressed()) {
             Minecraft.getMinecraft().displayGuiScreen(
                 new CustomVideoSettings(
@@ -133,16 +310,18 @@ public class MainModClass {
                 )
             );
         }
+    }
 
-        tickCounter++;
-        if (tickCounter >= GARBAGE_COLLECTION_INTERVAL) {
-            tickCounter = 0;
-            System.gc();
-        }
+    // FML reads options.txt again between load complete and the end of loading
+    private boolean isReadyToFinish() {
+        return loadComplete && !startupFinished && !FMLClientHandler.instance().isLoading();
     }
 
     @SubscribeEvent
     public void onGuiOpen(GuiOpenEvent event) {
+        if (isReadyToFinish()) {
+            finishStartup(Minecraft.getMinecraft());
+        }
         if (event.gui instanceof GuiVideoSettings) {
             event.gui = new CustomVideoSettings(
                 Minecraft.getMinecraft().currentScreen,
@@ -9,6 +9,11 @@ import net.minecraft.client.resources.I18n;
 import net.minecraft.client.settings.GameSettings;
 import net.minecraft.client.gui.GuiPageButtonList.GuiResponder;
 import org.lwjgl.input.Mouse;
+import com.performan.optimization.PlatformProfile;
+import com.performan.optimization.QualityGovernor;
+import com.performan.optimization.SettingsApplicator;
+import com.performan.optimization.SettingsWriter;
+import com.performan.texture.SpriteDownsampler;
 import java.io.IOException;
 
 public class CustomVideoSettings extends GuiScreen implements GuiResponder {
@@ -48,7 +53,7 @@ public class CustomVideoSettings extends GuiScreen implements GuiResponder {
     public CustomVideoSettings(GuiScreen parentScreenIn, GameSettings gameSettingsIn) {
         this.parentScreen = parentScreenIn;
         this.gameSettings = gameSettingsIn;
-        this.isAndroid = System.getProperty("java.vendor", "").toLowerCase().contains("android");
+        this.isAndroid = PlatformProfile.getInstance().isAndroid();
         
         // Adjust button dimensions for Android
         if (isAndroid) {
@@ -70,7 +75,8 @@ public class CustomVideoSettings extends GuiScreen implements GuiResponder {
         particleLevel = gameSettings.particleSetting;
         shadowQuality = gameSettings.fancyGraphics ? 2 : 1;
         useAdrenoOptimizations = isAndroid;
-        textureQuality = gameSettings.mipmapLevels > 2 ? 2 : 1;
+        int textureScale = SpriteDownsampler.getInstance().getScale();
+        textureQuality = textureScale == SpriteDownsampler.SCALE_FULL ? 2 : textureScale == SpriteDownsampler.SCALE_HALF ? 1 : 0;
         useVsync = gameSettings.enableVsync;
         fpsLimit = gameSettings.limitFramerate;
         useFastMath = true;
@@ -283,6 +289,7 @@ public class CustomVideoSettings extends GuiScreen implements GuiResponder {
                 break;
             case 9: // Done
                 saveSettings();
+                SettingsApplicator.getInstance().flush();
                 mc.displayGuiScreen(parentScreen);
                 break;
             case 10: // FPS Limit
@@ -389,11 +396,13 @@ public class CustomVideoSettings extends GuiScreen implements GuiResponder {
 
     private void saveSettings() {
         try {
-            // Apply settings to game
-            gameSettings.renderDistanceChunks = this.renderDistance;
-            gameSettings.particleSetting = this.particleLevel;
-            gameSettings.fancyGraphics = this.shadowQuality > 0;
-            gameSettings.mipmapLevels = getTextureQualityMipmap();
+            // Quality settings become the governor's baseline, it writes them to the game
+            int mipmapLevels = (isAndroid && useAdrenoOptimizations) ? 0 : getTextureQualityMipmap();
+            QualityGovernor governor = QualityGovernor.getInstance();
+            governor.setBaseline(this.renderDistance, this.particleLevel, this.shadowQuality > 0, mipmapLevels);
+            governor.applyTo(gameSettings);
+            
+            // Apply remaining settings to game
             gameSettings.enableVsync = this.useVsync;
             gameSettings.limitFramerate = this.fpsLimit;
             gameSettings.guiScale = (int)this.guiScale;
@@ -412,7 +421,6 @@ public class CustomVideoSettings extends GuiScreen implements GuiResponder {
             if (isAndroid && useAdrenoOptimizations) {
                 gameSettings.useVbo = false;
                 gameSettings.fboEnable = false;
-                gameSettings.mipmapLevels = 0;
                 System.setProperty("fml.ignorePatchDiscrepancies", "true");
                 System.setProperty("fml.ignoreInvalidMinecraftCertificates", "true");
                 System.setProperty("forge.forceNoStencil", "true");
@@ -423,12 +431,13 @@ public class CustomVideoSettings extends GuiScreen implements GuiResponder {
             System.setProperty("chunk.loading.threads", String.valueOf(maxChunkUpdates));
             System.setProperty("chunk.loading.batch.size", String.valueOf(maxChunkUpdates * 2));
 
-            // Save settings to disk
-            gameSettings.saveOptions();
+            // Save settings to disk in the background
+            SettingsWriter.getInstance().save(gameSettings);
             
-            // Force resource reload if needed
-            if (mc.getTextureManager() != null) {
-                mc.refreshResources();
+            // Reload only what the changed settings need
+            SettingsApplicator.getInstance().submit(gameSettings);
+            if (SpriteDownsampler.getInstance().setScale(getTextureQualityScale())) {
+                SettingsApplicator.getInstance().requestTextureReload();
             }
         } catch (Exception e) {
             System.err.println("Failed to save settings: " + e.getMessage());
@@ -452,6 +461,14 @@ public class CustomVideoSettings extends GuiScreen implements GuiResponder {
         }
     }
 
+    private int getTextureQualityScale() {
+        switch (textureQuality) {
+            case 0: return SpriteDownsampler.SCALE_QUARTER;
+            case 1: return SpriteDownsampler.SCALE_HALF;
+            default: return SpriteDownsampler.SCALE_FULL;
+        }
+    }
+
     @Override
     public void func_175321_a(int id, boolean value) {}
 
@@ -1,31 +1,52 @@
 package com.performan.optimization;
 
 import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.integrated.IntegratedServer;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.WorldServer;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent;
 import net.minecraft.world.World;
 import net.minecraft.util.BlockPos;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.TimeUnit;
 
-public class CPUReduce {
+public class CPUReduce implements MemoryManager.Releasable {
     // Constants for performance tuning
     private static final int BASE_CHUNK_PROCESS_LIMIT = 2;
-    private static final int TICK_INTERVAL = 5;
+    static final int TICK_INTERVAL = 5; // client ticks between runs, shared with TraceReplayer
     private static final int MAX_CHUNKS_PER_TICK = 2;
     private static final double MIN_FPS_THRESHOLD = 20.0;
     private static final int MOVEMENT_DETECTION_THRESHOLD = 2;
+    static final int FAST_MOVEMENT_COOLDOWN = 20; // ticks
     private static final int QUEUE_SIZE_LIMIT = 64;
-    private static final long PERFORMANCE_CHECK_INTERVAL = 500; // ms
+    static final long PERFORMANCE_CHECK_INTERVAL = 500; // ms
+    static final int FAST_MOVEMENT_RENDER_DISTANCE = 4;
+    private static final long PROCESS_BUDGET_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long TASK_EXPIRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int EVICTION_MARGIN = 2; // chunks beyond render distance kept tracked
+    private static final int EVICTION_SLOTS_PER_TICK = 64;
+    private static final int NEAR_RING = 1; // chunks around the player processed whatever the view
+    private static final double ARRIVAL_DISTANCE = 64.0; // blocks moved in one run that count as a teleport
+    private static final int SCAN_PER_TICK = 128; // chunk columns checked for missing chunks per run
+    static final double TICK_SECONDS = TICK_INTERVAL / 20.0;
+    private static final double PREFETCH_SECONDS = 4.0; // how far ahead of the player the path is queued
+    private static final int PREFETCH_STEP = 8; // blocks between points on the path
+    private static final int PREFETCH_PRIORITY = 3;
+    private static final int MAX_PREFETCH = 32; // queued at once
+    private static final int PREFETCH_PER_TICK = 8;
+
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("CPUReduce.onClientTick");
+    private static final int PROFILE_CHUNK_QUEUE = HotPathProfiler.getInstance().section("CPUReduce.processChunkQueue");
     
     // Performance tracking
-    private final Queue<ChunkLoadTask> chunkQueue = new ConcurrentLinkedQueue<>();
-    private final Set<ChunkPosition> loadedChunks = new LinkedHashSet<>();
+    private final ChunkLoadScheduler chunkQueue = new ChunkLoadScheduler(QUEUE_SIZE_LIMIT);
+    private final LongChunkSet loadedChunks = new LongChunkSet(256);
     private final AtomicInteger processedChunksCount = new AtomicInteger(0);
     private int tickCounter = 0;
     private long lastProcessTime = 0;
@@ -34,50 +55,37 @@ public class CPUReduce {
     private double lastPlayerZ = 0;
     private boolean isMovingFast = false;
     private int movementCooldown = 0;
+    private boolean renderDistanceCapped = false;
+    private World lastWorld = null;
+    // Ring around the player next checked for chunks not received yet, -1 once all were
+    private int scanRing = -1;
     private int currentProcessLimit = BASE_CHUNK_PROCESS_LIMIT;
     private double averageFPS = 60.0;
-    private double fpsAccumulator = 0;
-    private int fpsSampleCount = 0;
-    
-    private static class ChunkPosition {
-        final int x;
-        final int z;
-        
-        ChunkPosition(int x, int z) {
-            this.x = x;
-            this.z = z;
-        }
-        
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof ChunkPosition)) return false;
-            ChunkPosition that = (ChunkPosition) o;
-            return x == that.x && z == that.z;
-        }
-        
-        @Override
-        public int hashCode() {
-            return 31 * x + z;
-        }
-    }
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final FrameTimeTracker frameTimes = FrameTimeTracker.getInstance();
+    private final QualityGovernor governor = QualityGovernor.getInstance();
+    private final PlatformProfile platform = PlatformProfile.getInstance();
+    private final MovementPredictor predictor = new MovementPredictor();
     
-    private static class ChunkLoadTask {
-        final int x;
-        final int z;
-        final int priority;
-        final long timestamp;
-        
-        ChunkLoadTask(int x, int z, int priority) {
-            this.x = x;
-            this.z = z;
-            this.priority = priority;
-            this.timestamp = System.currentTimeMillis();
-        }
-    }
+    // Chunks queued ahead of the predicted path, packed, and the heading they were queued for
+    private final long[] prefetched = new long[MAX_PREFETCH];
+    private int prefetchCount = 0;
+    private double prefetchHeadingX = 0;
+    private double prefetchHeadingZ = 0;
+    private long prefetchQueued = 0;
+    private long prefetchCancelled = 0;
     
     @SubscribeEvent
     public void onClientTick(TickEvent.ClientTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    private void handleClientTick(TickEvent.ClientTickEvent event) {
         if (event.phase != TickEvent.Phase.END) return;
         
         Minecraft mc = Minecraft.getMinecraft();
@@ -89,20 +97,43 @@ public class CPUReduce {
         // Reset counter to prevent overflow
         tickCounter = 0;
         
-        // Check if we're running on Android
-        boolean isAndroid = System.getProperty("java.vendor", "").toLowerCase().contains("android");
-        if (!isAndroid) return;
+        // Only needed on low-end and mobile devices
+        if (!platform.isConstrained()) return;
         
         long currentTime = System.currentTimeMillis();
         
         // Update performance metrics
-        updatePerformanceMetrics(mc, currentTime);
+        updatePerformanceMetrics(currentTime);
+        
+        // Predict the path of the player, or of what they ride
+        Entity mover = mc.thePlayer.ridingEntity != null ? mc.thePlayer.ridingEntity : mc.thePlayer;
+        predictor.update(mover.posX, mover.posZ, TICK_SECONDS);
+        
+        // A new world, a respawn or a teleport leaves everything around the player to be sent
+        if (mc.theWorld != lastWorld || isArrival(mc.thePlayer.posX - lastPlayerX, mc.thePlayer.posZ - lastPlayerZ)) {
+            lastWorld = mc.theWorld;
+            scanRing = 0;
+        }
         
         // Detect rapid movement
         detectRapidMovement(mc);
         
         // Process chunk queue with dynamic limits
-        processChunkQueue(mc.theWorld);
+        chunkQueue.updateViewer(mc.thePlayer.posX / 16.0, mc.thePlayer.posZ / 16.0, mc.thePlayer.rotationYaw,
+            horizontalFov(mc.gameSettings.fovSetting, mc.displayWidth, mc.displayHeight));
+        chunkQueue.setDeferOutsideView(isUnderLoad());
+        scanMissingChunks(mc);
+        prefetchAlongPath(mc);
+        long profileStart = profiler.begin(PROFILE_CHUNK_QUEUE);
+        try {
+            processChunkQueue(mc.theWorld);
+        } finally {
+            profiler.end(PROFILE_CHUNK_QUEUE, profileStart);
+        }
+        
+        // Incrementally forget chunks that left the render distance
+        loadedChunks.evictOutside(mc.thePlayer.chunkCoordX, mc.thePlayer.chunkCoordZ,
+            mc.gameSettings.renderDistanceChunks + EVICTION_MARGIN, EVICTION_SLOTS_PER_TICK);
         
         // Cleanup and optimization
         if (currentTime - lastProcessTime > TimeUnit.SECONDS.toMillis(5)) {
@@ -114,121 +145,334 @@ public class CPUReduce {
         lastPlayerZ = mc.thePlayer.posZ;
     }
     
-    private void updatePerformanceMetrics(Minecraft mc, long currentTime) {
-        // Update FPS metrics
-        fpsAccumulator += mc.getDebugFPS();
-        fpsSampleCount++;
-        
+    private void updatePerformanceMetrics(long currentTime) {
         if (currentTime - lastPerformanceCheck >= PERFORMANCE_CHECK_INTERVAL) {
-            if (fpsSampleCount > 0) {
-                averageFPS = fpsAccumulator / fpsSampleCount;
+            if (frameTimes.getSampleCount() > 0) {
+                averageFPS = frameTimes.getP95FPS();
                 
                 // Adjust process limit based on FPS
                 updateProcessLimit();
             }
             
-            fpsAccumulator = 0;
-            fpsSampleCount = 0;
             lastPerformanceCheck = currentTime;
         }
     }
     
     private void updateProcessLimit() {
-        if (averageFPS < MIN_FPS_THRESHOLD) {
-            currentProcessLimit = 1;
-        } else if (averageFPS < 30) {
-            currentProcessLimit = Math.max(1, BASE_CHUNK_PROCESS_LIMIT - 1);
+        currentProcessLimit = computeProcessLimit(averageFPS, isMovingFast);
+    }
+    
+    /** Chunks processed per tick for the given FPS, shared with TraceReplayer. */
+    public static int computeProcessLimit(double fps, boolean movingFast) {
+        int limit;
+        if (fps < MIN_FPS_THRESHOLD) {
+            limit = 1;
+        } else if (fps < 30) {
+            limit = Math.max(1, BASE_CHUNK_PROCESS_LIMIT - 1);
         } else {
-            currentProcessLimit = BASE_CHUNK_PROCESS_LIMIT;
+            limit = BASE_CHUNK_PROCESS_LIMIT;
         }
         
-        if (isMovingFast) {
-            currentProcessLimit = Math.max(1, currentProcessLimit - 1);
+        if (movingFast) {
+            limit = Math.max(1, limit - 1);
         }
+        return limit;
+    }
+    
+    /** Horizontal field of view in degrees for a vertical one and the window size. */
+    public static float horizontalFov(float verticalFov, int width, int height) {
+        if (width <= 0 || height <= 0) return verticalFov;
+        double half = Math.toRadians(verticalFov) * 0.5;
+        return (float) Math.toDegrees(2.0 * Math.atan(Math.tan(half) * width / height));
+    }
+    
+    // Chunks behind the camera wait while frames are slow
+    private boolean isUnderLoad() {
+        return averageFPS < MIN_FPS_THRESHOLD || governor.getEffectiveLevel() >= QualityGovernor.LEVEL_MEDIUM;
+    }
+    
+    /** Whether fast movement caps the render distance, shared with TraceReplayer. */
+    public static boolean capsRenderDistance(boolean predictablePath, boolean singleplayer) {
+        // Only the integrated server can load the chunks ahead of the path in time
+        return !(predictablePath && singleplayer);
+    }
+    
+    /** Whether the horizontal movement since the last tick counts as fast. */
+    public static boolean isFastMovement(double deltaX, double deltaZ) {
+        return Math.sqrt(deltaX * deltaX + deltaZ * deltaZ) > MOVEMENT_DETECTION_THRESHOLD;
     }
     
     private void detectRapidMovement(Minecraft mc) {
         double deltaX = Math.abs(mc.thePlayer.posX - lastPlayerX);
         double deltaZ = Math.abs(mc.thePlayer.posZ - lastPlayerZ);
-        double movementSpeed = Math.sqrt(deltaX * deltaX + deltaZ * deltaZ);
         
-        if (movementSpeed > MOVEMENT_DETECTION_THRESHOLD) {
+        if (isFastMovement(deltaX, deltaZ)) {
             isMovingFast = true;
-            movementCooldown = 20;
+            movementCooldown = FAST_MOVEMENT_COOLDOWN;
             
-            // Reduce render distance during fast movement
-            if (mc.gameSettings.renderDistanceChunks > 4) {
-                mc.gameSettings.renderDistanceChunks = 4;
+            // Cap render distance during fast movement, unless the path is predictable and prefetched
+            renderDistanceCapped = capsRenderDistance(predictor.isPredictable(), mc.isIntegratedServerRunning());
+            if (renderDistanceCapped) {
+                governor.setRenderDistanceCap(FAST_MOVEMENT_RENDER_DISTANCE);
+            } else {
+                governor.clearRenderDistanceCap();
             }
         } else if (movementCooldown > 0) {
             movementCooldown--;
             if (movementCooldown == 0) {
                 isMovingFast = false;
+                renderDistanceCapped = false;
+                
+                // Let the governor restore the user's render distance
+                governor.clearRenderDistanceCap();
+            }
+        }
+    }
+    
+    private static boolean isArrival(double deltaX, double deltaZ) {
+        return deltaX * deltaX + deltaZ * deltaZ > ARRIVAL_DISTANCE * ARRIVAL_DISTANCE;
+    }
+    
+    // Queues the chunks around the player the client has not received yet, nearest ring first
+    private void scanMissingChunks(Minecraft mc) {
+        if (scanRing < 0) return;
+        // Only the integrated server can be asked for chunks
+        if (!mc.isIntegratedServerRunning()) {
+            scanRing = -1;
+            return;
+        }
+        
+        int centerX = mc.thePlayer.chunkCoordX;
+        int centerZ = mc.thePlayer.chunkCoordZ;
+        int checked = 0;
+        while (scanRing <= mc.gameSettings.renderDistanceChunks) {
+            int ring = scanRing;
+            int size = Math.max(1, ring * 8);
+            if (checked > 0 && checked + size > SCAN_PER_TICK) return;
+            
+            for (int i = -ring; i <= ring; i++) {
+                if (!queueIfMissing(mc.theWorld, centerX + i, centerZ - ring)
+                        || !queueIfMissing(mc.theWorld, centerX + i, centerZ + ring)) {
+                    return;
+                }
+            }
+            for (int i = -ring + 1; i < ring; i++) {
+                if (!queueIfMissing(mc.theWorld, centerX - ring, centerZ + i)
+                        || !queueIfMissing(mc.theWorld, centerX + ring, centerZ + i)) {
+                    return;
+                }
+            }
+            checked += size;
+            scanRing++;
+        }
+        scanRing = -1;
+    }
+    
+    // False once the queue is full, the ring is checked again on the next run
+    private boolean queueIfMissing(World world, int chunkX, int chunkZ) {
+        if (loadedChunks.contains(chunkX, chunkZ) || chunkQueue.contains(chunkX, chunkZ)) return true;
+        // The client returns an empty chunk for one it has not received
+        if (!world.getChunkFromChunkCoords(chunkX, chunkZ).isEmpty() || !shouldProcessChunk(chunkX, chunkZ)) return true;
+        if (chunkQueue.size() >= QUEUE_SIZE_LIMIT) return false;
+        
+        queueChunkLoad(chunkX, chunkZ);
+        return true;
+    }
+    
+    // Queues the chunks ahead of a steady path, and cancels them once the heading changes.
+    // Only the integrated server can be asked for them.
+    private void prefetchAlongPath(Minecraft mc) {
+        pruneFinishedPrefetches();
+        if (!predictor.isPredictable() || !mc.isIntegratedServerRunning()) {
+            cancelPrefetch();
+            return;
+        }
+        if (prefetchCount > 0 && !predictor.isHeading(prefetchHeadingX, prefetchHeadingZ)) {
+            cancelPrefetch();
+        }
+        if (prefetchCount == 0) {
+            prefetchHeadingX = predictor.getVelocityX();
+            prefetchHeadingZ = predictor.getVelocityZ();
+        }
+        
+        double speed = predictor.getSpeed();
+        double dirX = predictor.getVelocityX() / speed;
+        double dirZ = predictor.getVelocityZ() / speed;
+        int maxDistance = mc.gameSettings.renderDistanceChunks + EVICTION_MARGIN;
+        int queued = 0;
+        for (double distance = PREFETCH_STEP; distance <= speed * PREFETCH_SECONDS; distance += PREFETCH_STEP) {
+            double x = predictor.predictX(distance / speed);
+            double z = predictor.predictZ(distance / speed);
+            // The chunk on the path and one to each side of it
+            for (int side = -1; side <= 1; side++) {
+                if (queued >= PREFETCH_PER_TICK || prefetchCount >= MAX_PREFETCH) return;
                 
-                // Gradually restore render distance
-                if (mc.gameSettings.renderDistanceChunks < 6) {
-                    mc.gameSettings.renderDistanceChunks++;
+                int chunkX = (int) Math.floor(x - dirZ * 16.0 * side) >> 4;
+                int chunkZ = (int) Math.floor(z + dirX * 16.0 * side) >> 4;
+                if (Math.abs(chunkX - mc.thePlayer.chunkCoordX) > maxDistance
+                        || Math.abs(chunkZ - mc.thePlayer.chunkCoordZ) > maxDistance) {
+                    return;
+                }
+                if (queuePrefetch(mc.theWorld, chunkX, chunkZ)) {
+                    queued++;
                 }
             }
         }
     }
     
+    private boolean queuePrefetch(World world, int chunkX, int chunkZ) {
+        if (loadedChunks.contains(chunkX, chunkZ) || chunkQueue.contains(chunkX, chunkZ)) return false;
+        // The client returns an empty chunk for one it has not received
+        if (!world.getChunkFromChunkCoords(chunkX, chunkZ).isEmpty()) return false;
+        if (!queueChunkLoad(chunkX, chunkZ, PREFETCH_PRIORITY)) return false;
+        
+        prefetched[prefetchCount++] = LongChunkSet.pack(chunkX, chunkZ);
+        prefetchQueued++;
+        return true;
+    }
+    
+    // Forgets prefetches that were processed, expired or cleared
+    private void pruneFinishedPrefetches() {
+        int kept = 0;
+        for (int i = 0; i < prefetchCount; i++) {
+            long key = prefetched[i];
+            if (chunkQueue.contains(LongChunkSet.unpackX(key), LongChunkSet.unpackZ(key))) {
+                prefetched[kept++] = key;
+            }
+        }
+        prefetchCount = kept;
+    }
+    
+    private void cancelPrefetch() {
+        for (int i = 0; i < prefetchCount; i++) {
+            if (chunkQueue.cancel(LongChunkSet.unpackX(prefetched[i]), LongChunkSet.unpackZ(prefetched[i]))) {
+                prefetchCancelled++;
+            }
+        }
+        prefetchCount = 0;
+    }
+    
+    private boolean isPrefetched(int chunkX, int chunkZ) {
+        long key = LongChunkSet.pack(chunkX, chunkZ);
+        for (int i = 0; i < prefetchCount; i++) {
+            if (prefetched[i] == key) return true;
+        }
+        return false;
+    }
+    
     private void processChunkQueue(World world) {
         int processed = 0;
-        long startTime = System.currentTimeMillis();
-        long timeLimit = 50; // Maximum processing time per tick (ms)
+        long startTime = System.nanoTime();
+        boolean deferring = isUnderLoad();
         
         while (!chunkQueue.isEmpty() && processed < currentProcessLimit) {
-            if (System.currentTimeMillis() - startTime > timeLimit) {
+            // Stay well inside a single frame
+            long now = System.nanoTime();
+            if (now - startTime > PROCESS_BUDGET_NANOS) {
                 break;
             }
             
-            ChunkLoadTask task = chunkQueue.poll();
+            // Deferred chunks sort last, once one is on top only deferred ones are left
+            if (deferring) {
+                ChunkLoadScheduler.Task next = chunkQueue.peek();
+                if (next == null || !chunkQueue.isInView(next.getX(), next.getZ())) break;
+            }
+            
+            ChunkLoadScheduler.Task task = chunkQueue.poll();
             if (task == null) break;
             
-            ChunkPosition pos = new ChunkPosition(task.x, task.z);
-            if (loadedChunks.contains(pos)) continue;
+            if (loadedChunks.contains(task.getX(), task.getZ())) continue;
             
             // Skip expired tasks
-            if (System.currentTimeMillis() - task.timestamp > TimeUnit.SECONDS.toMillis(5)) {
+            if (now - task.getEnqueueTime() > TASK_EXPIRY_NANOS) {
                 continue;
             }
             
             // Process chunk with priority consideration
             if (processChunk(world, task)) {
-                loadedChunks.add(pos);
+                loadedChunks.add(task.getX(), task.getZ());
                 processed++;
                 processedChunksCount.incrementAndGet();
+                chunkQueue.recordCompletion(task, System.nanoTime());
             }
         }
     }
     
-    private boolean processChunk(World world, ChunkLoadTask task) {
+    private boolean processChunk(World world, ChunkLoadScheduler.Task task) {
         try {
-            if (!world.getChunkProvider().chunkExists(task.x, task.z)) {
-                // Skip low priority chunks during fast movement
-                if (isMovingFast && task.priority > 1) {
-                    return false;
-                }
-                
-                world.getChunkFromChunkCoords(task.x, task.z);
-                return true;
+            // Received in the meantime
+            if (!world.getChunkFromChunkCoords(task.getX(), task.getZ()).isEmpty()) return true;
+            
+            // Skip low priority chunks during fast movement, except the ones ahead of the path
+            if (isMovingFast && task.getPriority() > 1 && !isPrefetched(task.getX(), task.getZ())) {
+                return false;
             }
+            return requestFromServer(task.getX(), task.getZ());
         } catch (Exception e) {
-            System.err.println("Error loading chunk at " + task.x + "," + task.z + ": " + e.getMessage());
+            System.err.println("Error loading chunk at " + task.getX() + "," + task.getZ() + ": " + e.getMessage());
         }
         return false;
     }
     
-    public void queueChunkLoad(int chunkX, int chunkZ) {
-        if (chunkQueue.size() >= QUEUE_SIZE_LIMIT) {
-            return;
-        }
-        
+    // The client cannot ask a remote server for chunks, but the integrated server can
+    // load one now and send it ahead of the rest of the player's queue
+    private boolean requestFromServer(int chunkX, int chunkZ) {
         Minecraft mc = Minecraft.getMinecraft();
-        int priority = calculateChunkPriority(chunkX, chunkZ, mc);
+        IntegratedServer server = mc.getIntegratedServer();
+        if (server == null || mc.thePlayer == null) return false;
         
-        chunkQueue.offer(new ChunkLoadTask(chunkX, chunkZ, priority));
+        int dimension = mc.thePlayer.dimension;
+        UUID playerId = mc.thePlayer.getUniqueID();
+        server.addScheduledTask(() -> loadOnServer(server, dimension, playerId, chunkX, chunkZ));
+        return true;
+    }
+    
+    // Runs on the server thread
+    private static void loadOnServer(MinecraftServer server, int dimension, UUID playerId, int chunkX, int chunkZ) {
+        try {
+            WorldServer world = server.worldServerForDimension(dimension);
+            world.theChunkProviderServer.loadChunk(chunkX, chunkZ);
+            
+            EntityPlayerMP player = server.getConfigurationManager().getPlayerByUUID(playerId);
+            if (player == null || player.worldObj != world) return;
+            ChunkCoordIntPair pair = new ChunkCoordIntPair(chunkX, chunkZ);
+            if (player.loadedChunks.remove(pair)) {
+                player.loadedChunks.add(0, pair);
+            }
+        } catch (Exception e) {
+            System.err.println("Error loading chunk at " + chunkX + "," + chunkZ + " on the server: " + e.getMessage());
+        }
+    }
+    
+    public void queueChunkLoad(int chunkX, int chunkZ) {
+        Minecraft mc = Minecraft.getMinecraft();
+        queueChunkLoad(chunkX, chunkZ, calculateChunkPriority(chunkX, chunkZ, mc));
+    }
+    
+    /**
+     * Queues a chunk at the given priority, 1 being the highest.
+     *
+     * @return true if it was queued
+     */
+    public boolean queueChunkLoad(int chunkX, int chunkZ, int priority) {
+        // Duplicates and overflow are rejected by the scheduler
+        return chunkQueue.offer(chunkX, chunkZ, priority, System.nanoTime());
+    }
+    
+    public int getQueueDepth() {
+        return chunkQueue.size();
+    }
+    
+    public ChunkLoadScheduler getScheduler() {
+        return chunkQueue;
+    }
+    
+    public long getPrefetchQueuedCount() {
+        return prefetchQueued;
+    }
+    
+    public long getPrefetchCancelledCount() {
+        return prefetchCancelled;
     }
     
     private int calculateChunkPriority(int chunkX, int chunkZ, Minecraft mc) {
@@ -242,30 +486,31 @@ public class CPUReduce {
             Math.abs(chunkZ - playerChunkZ)
         );
         
-        // Higher priority for chunks closer to player
-        if (distance <= 2) return 1;
-        if (distance <= 4) return 2;
-        return 3;
+        // Higher priority for chunks closer to player and in front of the camera. The
+        // scheduler orders by its own score, priority only decides what fast movement skips
+        if (distance <= NEAR_RING) return 1;
+        boolean inView = chunkQueue.isInView(chunkX, chunkZ);
+        if (distance <= 4) return inView ? 1 : 2;
+        return inView ? 2 : 3;
     }
     
     private void performCleanup() {
         // Remove expired tasks
-        long currentTime = System.currentTimeMillis();
-        chunkQueue.removeIf(task -> 
-            currentTime - task.timestamp > TimeUnit.SECONDS.toMillis(5));
-        
-        // Clear old loaded chunks tracking
-        if (loadedChunks.size() > 100) {
-            loadedChunks.clear();
-        }
+        chunkQueue.removeExpired(System.nanoTime(), TASK_EXPIRY_NANOS);
         
         // Reset counters
         processedChunksCount.set(0);
         
-        // Aggressive cleanup during fast movement
-        if (isMovingFast) {
+        // Aggressive cleanup during fast movement off a predictable path
+        if (isMovingFast && renderDistanceCapped) {
+            chunkQueue.clear();
+        }
+    }
+    
+    @Override
+    public void releaseMemory(int stage) {
+        if (stage >= MemoryManager.STAGE_RELEASE) {
             chunkQueue.clear();
-            System.gc();
         }
     }
     
@@ -279,8 +524,11 @@ public class CPUReduce {
         int distanceX = Math.abs(chunkX - playerChunkX);
         int distanceZ = Math.abs(chunkZ - playerChunkZ);
         
-        int renderDistance = isMovingFast ? 4 : mc.gameSettings.renderDistanceChunks;
+        int renderDistance = renderDistanceCapped ? FAST_MOVEMENT_RENDER_DISTANCE : mc.gameSettings.renderDistanceChunks;
+        if (distanceX > renderDistance || distanceZ > renderDistance) return false;
         
-        return distanceX <= renderDistance && distanceZ <= renderDistance;
+        // Under load only what the camera can see
+        if (distanceX <= NEAR_RING && distanceZ <= NEAR_RING) return true;
+        return !isUnderLoad() || chunkQueue.isInView(chunkX, chunkZ);
     }
 }
\ No newline at end of file
@@ -0,0 +1,408 @@
+package com.performan.optimization;
+
+/**
+ * Bounded priority queue for chunk load work. Tasks are ordered by distance to the
+ * viewer, weighted by how far outside the view cone they are, and re-scored whenever
+ * the viewer moves to another chunk or turns noticeably. Angles come from tables, so
+ * scoring a chunk costs no trigonometry. The priority a task is offered with is kept
+ * for the caller and does not change the order.
+ */
+public class ChunkLoadScheduler {
+    private static final double LOOK_WEIGHT = 1.5; // Extra cost for chunks directly behind the viewer
+    private static final float DEFAULT_FOV = 100.0f; // horizontal degrees
+    private static final float CONE_MARGIN = 15.0f; // degrees beyond the screen edge still counted as in view
+    private static final double NEAR_DISTANCE_SQ = 2.0; // chunks this close are always in view
+    private static final double DEFERRED_COST = 1.0e6; // Sorts deferred chunks after all others
+    private static final double RESCORE_DISTANCE = 0.5; // chunks
+    private static final float RESCORE_YAW = 15.0f; // degrees
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    // Angles are kept in 256ths of a turn
+    private static final int ANGLE_STEPS = 256;
+    private static final int TABLE_RADIUS = 32; // chunks
+    private static final int TABLE_SIDE = TABLE_RADIUS * 2 + 1;
+    // Yaw that faces each chunk offset within the table radius
+    private static final byte[] BEARINGS = new byte[TABLE_SIDE * TABLE_SIDE];
+
+    static {
+        for (int dz = -TABLE_RADIUS; dz <= TABLE_RADIUS; dz++) {
+            for (int dx = -TABLE_RADIUS; dx <= TABLE_RADIUS; dx++) {
+                BEARINGS[(dz + TABLE_RADIUS) * TABLE_SIDE + dx + TABLE_RADIUS] = (byte) bearing(dx, dz);
+            }
+        }
+    }
+
+    public static class Task {
+        final int x;
+        final int z;
+        final int priority;
+        final long enqueueTime;
+        double score;
+
+        Task(int x, int z, int priority, long enqueueTime) {
+            this.x = x;
+            this.z = z;
+            this.priority = priority;
+            this.enqueueTime = enqueueTime;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public long getEnqueueTime() {
+            return enqueueTime;
+        }
+    }
+
+    private final Task[] heap;
+    private int size = 0;
+
+    // Viewer position in chunk coordinates and look direction
+    private double viewerX = 0;
+    private double viewerZ = 0;
+    private int viewerChunkX = 0;
+    private int viewerChunkZ = 0;
+    private float viewerYaw = 0;
+    private int viewerYawStep = 0;
+    private float viewerFov = DEFAULT_FOV;
+    private boolean deferOutsideView = false;
+    private double scoredX = 0;
+    private double scoredZ = 0;
+    private float scoredYaw = 0;
+    private boolean needsRescore = false;
+
+    // Indexed by the angle from the look direction in steps, 0 to half a turn
+    private final float[] angleWeights = new float[ANGLE_STEPS / 2 + 1];
+    private final boolean[] outsideView = new boolean[ANGLE_STEPS / 2 + 1];
+
+    // Metrics
+    private int maxDepth = 0;
+    private long offered = 0;
+    private long duplicates = 0;
+    private long dropped = 0;
+    private long expired = 0;
+    private long cancelled = 0;
+    private long completed = 0;
+    private double averageLatencyNanos = 0;
+    private long maxLatencyNanos = 0;
+
+    public ChunkLoadScheduler(int capacity) {
+        this.heap = new Task[capacity];
+        buildAngleTables();
+    }
+
+    public synchronized void updateViewer(double chunkX, double chunkZ, float yaw) {
+        updateViewer(chunkX, chunkZ, yaw, viewerFov);
+    }
+
+    /**
+     * @param fov horizontal field of view in degrees
+     */
+    public synchronized void updateViewer(double chunkX, double chunkZ, float yaw, float fov) {
+        viewerX = chunkX;
+        viewerZ = chunkZ;
+        viewerChunkX = (int) Math.floor(chunkX);
+        viewerChunkZ = (int) Math.floor(chunkZ);
+        viewerYaw = yaw;
+        viewerYawStep = toSteps(yaw);
+
+        if (Math.abs(fov - viewerFov) >= 1.0f) {
+            viewerFov = fov;
+            buildAngleTables();
+            needsRescore = true;
+        }
+
+        double dx = chunkX - scoredX;
+        double dz = chunkZ - scoredZ;
+        float dYaw = Math.abs(wrapDegrees(yaw - scoredYaw));
+        if (dx * dx + dz * dz > RESCORE_DISTANCE * RESCORE_DISTANCE || dYaw > RESCORE_YAW) {
+            needsRescore = true;
+        }
+    }
+
+    /**
+     * Adds a task unless the chunk is already queued or the queue is full.
+     *
+     * @return true if the task was queued
+     */
+    public synchronized boolean offer(int x, int z, int priority, long nowNanos) {
+        offered++;
+        if (indexOf(x, z) >= 0) {
+            duplicates++;
+            return false;
+        }
+        if (size == heap.length) {
+            dropped++;
+            return false;
+        }
+
+        Task task = new Task(x, z, priority, nowNanos);
+        task.score = score(x, z);
+        heap[size] = task;
+        siftUp(size++);
+        maxDepth = Math.max(maxDepth, size);
+        return true;
+    }
+
+    /** While set, chunks outside the view cone sort after every chunk inside it. */
+    public synchronized void setDeferOutsideView(boolean defer) {
+        if (defer != deferOutsideView) {
+            deferOutsideView = defer;
+            needsRescore = true;
+        }
+    }
+
+    /** Whether the chunk is next to the viewer or inside the view cone. */
+    public synchronized boolean isInView(int x, int z) {
+        double dx = x + 0.5 - viewerX;
+        double dz = z + 0.5 - viewerZ;
+        return dx * dx + dz * dz <= NEAR_DISTANCE_SQ || !outsideView[angleFromLook(x, z)];
+    }
+
+    public synchronized Task peek() {
+        if (size == 0) return null;
+        if (needsRescore) {
+            rescore();
+        }
+        return heap[0];
+    }
+
+    public synchronized Task poll() {
+        if (size == 0) return null;
+        if (needsRescore) {
+            rescore();
+        }
+
+        Task task = heap[0];
+        heap[0] = heap[--size];
+        heap[size] = null;
+        if (size > 0) {
+            siftDown(0);
+        }
+        return task;
+    }
+
+    /**
+     * Removes a queued task whose chunk is no longer wanted.
+     *
+     * @return true if the task was queued
+     */
+    public synchronized boolean cancel(int x, int z) {
+        int index = indexOf(x, z);
+        if (index < 0) return false;
+
+        Task last = heap[--size];
+        heap[size] = null;
+        if (index < size) {
+            heap[index] = last;
+            siftDown(index);
+            siftUp(index);
+        }
+        cancelled++;
+        return true;
+    }
+
+    public synchronized void recordCompletion(Task task, long nowNanos) {
+        long latency = nowNanos - task.enqueueTime;
+        completed++;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        averageLatencyNanos = completed == 1 ? latency
+            : averageLatencyNanos + (latency - averageLatencyNanos) * LATENCY_SMOOTHING;
+    }
+
+    public synchronized boolean contains(int x, int z) {
+        return indexOf(x, z) >= 0;
+    }
+
+    public synchronized int removeExpired(long nowNanos, long maxAgeNanos) {
+        int removed = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (nowNanos - heap[i].enqueueTime > maxAgeNanos) {
+                heap[i] = heap[--size];
+                heap[size] = null;
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            heapify();
+            expired += removed;
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < size; i++) {
+            heap[i] = null;
+        }
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public synchronized long getOfferedCount() {
+        return offered;
+    }
+
+    public synchronized long getDuplicateCount() {
+        return duplicates;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public synchronized long getExpiredCount() {
+        return expired;
+    }
+
+    public synchronized long getCancelledCount() {
+        return cancelled;
+    }
+
+    public synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    public synchronized long getAverageLatencyNanos() {
+        return (long) averageLatencyNanos;
+    }
+
+    public synchronized long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    public synchronized void resetMetrics() {
+        maxDepth = size;
+        offered = 0;
+        duplicates = 0;
+        dropped = 0;
+        expired = 0;
+        cancelled = 0;
+        completed = 0;
+        averageLatencyNanos = 0;
+        maxLatencyNanos = 0;
+    }
+
+    private double score(int x, int z) {
+        // Distance from the viewer to the chunk center
+        double dx = x + 0.5 - viewerX;
+        double dz = z + 0.5 - viewerZ;
+        double distanceSq = dx * dx + dz * dz;
+        if (distanceSq <= NEAR_DISTANCE_SQ) return distanceSq;
+
+        int angle = angleFromLook(x, z);
+        double score = distanceSq * angleWeights[angle];
+        return deferOutsideView && outsideView[angle] ? score + DEFERRED_COST : score;
+    }
+
+    // Angle between the look direction and the chunk, in steps
+    private int angleFromLook(int x, int z) {
+        int dx = x - viewerChunkX;
+        int dz = z - viewerChunkZ;
+        int bearing;
+        if (Math.abs(dx) <= TABLE_RADIUS && Math.abs(dz) <= TABLE_RADIUS) {
+            bearing = BEARINGS[(dz + TABLE_RADIUS) * TABLE_SIDE + dx + TABLE_RADIUS] & 0xFF;
+        } else {
+            bearing = bearing(dx, dz);
+        }
+        int relative = (bearing - viewerYawStep) & (ANGLE_STEPS - 1);
+        return Math.min(relative, ANGLE_STEPS - relative);
+    }
+
+    private void buildAngleTables() {
+        double edge = Math.min(180.0, viewerFov * 0.5 + CONE_MARGIN);
+        for (int i = 0; i < angleWeights.length; i++) {
+            double degrees = i * 360.0 / ANGLE_STEPS;
+            outsideView[i] = degrees > edge;
+            // No extra cost inside the cone, rising to 1 + LOOK_WEIGHT directly behind
+            angleWeights[i] = degrees <= edge ? 1.0f : (float) (1.0 + LOOK_WEIGHT * (degrees - edge) / (180.0 - edge));
+        }
+    }
+
+    // Minecraft yaw 0 faces +Z, 90 faces -X
+    private static int bearing(int dx, int dz) {
+        return toSteps(Math.toDegrees(Math.atan2(-dx, dz)));
+    }
+
+    private static int toSteps(double degrees) {
+        return (int) Math.round(degrees * ANGLE_STEPS / 360.0) & (ANGLE_STEPS - 1);
+    }
+
+    private void rescore() {
+        for (int i = 0; i < size; i++) {
+            heap[i].score = score(heap[i].x, heap[i].z);
+        }
+        heapify();
+        scoredX = viewerX;
+        scoredZ = viewerZ;
+        scoredYaw = viewerYaw;
+        needsRescore = false;
+    }
+
+    private int indexOf(int x, int z) {
+        // The queue is small, a linear scan avoids a separate index structure
+        for (int i = 0; i < size; i++) {
+            if (heap[i].x == x && heap[i].z == z) return i;
+        }
+        return -1;
+    }
+
+    private void heapify() {
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int index) {
+        Task task = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].score <= task.score) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = task;
+    }
+
+    private void siftDown(int index) {
+        Task task = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heap[right].score < heap[child].score) {
+                child = right;
+            }
+            if (task.score <= heap[child].score) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = task;
+    }
+
+    private static float wrapDegrees(float degrees) {
+        degrees %= 360.0f;
+        if (degrees >= 180.0f) degrees -= 360.0f;
+        if (degrees < -180.0f) degrees += 360.0f;
+        return degrees;
+    }
+}
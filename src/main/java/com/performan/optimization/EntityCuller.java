@@ -0,0 +1,288 @@
+package com.performan.optimization;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.entity.RendererLivingEntity;
+import net.minecraft.client.renderer.entity.layers.LayerArmorBase;
+import net.minecraft.client.renderer.entity.layers.LayerRenderer;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.entity.boss.IBossDisplayData;
+import net.minecraftforge.client.event.RenderLivingEvent;
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Limits entity rendering. Living entities beyond a distance set by the device tier
+ * are skipped, and when more are in range than the frame budget allows only the
+ * nearest are drawn. Name tags and armor are dropped at shorter distances first.
+ * Other entities get their render distance scaled instead. All limits tighten with
+ * the governor's quality level.
+ */
+public class EntityCuller {
+    // Indexed by PlatformProfile.Tier
+    private static final double[] TIER_DISTANCE = {32.0, 48.0, 64.0};
+    private static final int[] TIER_BUDGET = {48, 96, 192};
+    private static final double[] TIER_WEIGHT_SCALE = {0.5, 0.75, 1.0};
+
+    // Indexed by QualityGovernor level
+    private static final double[] DISTANCE_SCALE = {1.0, 0.9, 0.75, 0.6, 0.5};
+    private static final double[] BUDGET_SCALE = {1.0, 0.75, 0.5, 0.35, 0.25};
+    private static final double[] NAME_TAG_DISTANCE = {64.0, 24.0, 16.0, 8.0, 4.0};
+    private static final double[] ARMOR_DISTANCE = {64.0, 32.0, 16.0, 12.0, 8.0};
+
+    // Always drawn this close
+    private static final double NEAR_DISTANCE_SQ = 8.0 * 8.0;
+    private static final int WEIGHT_UPDATE_INTERVAL = 10; // ticks
+
+    private static final int PROFILE_RENDER_TICK = HotPathProfiler.getInstance().handler("EntityCuller.onRenderTick");
+    private static final int PROFILE_RENDER_LIVING = HotPathProfiler.getInstance().handler("EntityCuller.onRenderLiving");
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("EntityCuller.onClientTick");
+
+    private static final EntityCuller INSTANCE = new EntityCuller();
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final Minecraft mc = Minecraft.getMinecraft();
+    private final QualityGovernor governor = QualityGovernor.getInstance();
+    private final PlatformProfile platform = PlatformProfile.getInstance();
+    // RendererLivingEntity.layerRenderers, resolved once
+    private MethodHandle layersGetter;
+    private final Set<RendererLivingEntity<?>> wrappedRenderers = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Render distance weights of non-living entities before scaling
+    private final Map<Entity, Double> baseWeights = new WeakHashMap<>();
+    private double appliedWeightScale = 1.0;
+
+    // Limits of the current frame, as squared distances
+    private double cullDistanceSq = Double.MAX_VALUE;
+    private double budgetDistanceSq = Double.MAX_VALUE;
+    private double nameTagDistanceSq = Double.MAX_VALUE;
+    private double armorDistanceSq = Double.MAX_VALUE;
+    private double[] distances = new double[256];
+    private int tickCounter = 0;
+
+    // Statistics
+    private int frameCulled = 0;
+    private int lastFrameCulled = 0;
+    private long culled = 0;
+
+    private EntityCuller() {
+        try {
+            layersGetter = MethodHandles.lookup().unreflectGetter(
+                ReflectionHelper.findField(RendererLivingEntity.class, "layerRenderers", "field_177097_h"));
+        } catch (Exception e) {
+            System.err.println("Armor culling unavailable: " + e.getMessage());
+        }
+    }
+
+    public static EntityCuller getInstance() {
+        return INSTANCE;
+    }
+
+    @SubscribeEvent
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_RENDER_TICK);
+        try {
+            handleRenderTick(event);
+        } finally {
+            profiler.end(PROFILE_RENDER_TICK, profileStart);
+        }
+    }
+
+    private void handleRenderTick(TickEvent.RenderTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) return;
+
+        lastFrameCulled = frameCulled;
+        frameCulled = 0;
+        Entity camera = mc.getRenderViewEntity();
+        if (mc.theWorld == null || camera == null) return;
+
+        int tier = platform.getTier().ordinal();
+        int level = governor.getEffectiveLevel();
+        double cullDistance = TIER_DISTANCE[tier] * DISTANCE_SCALE[level];
+        cullDistanceSq = cullDistance * cullDistance;
+        nameTagDistanceSq = NAME_TAG_DISTANCE[level] * NAME_TAG_DISTANCE[level];
+        armorDistanceSq = ARMOR_DISTANCE[level] * ARMOR_DISTANCE[level];
+
+        // The budget is spent on the nearest entities in range
+        int budget = Math.max(1, (int) (TIER_BUDGET[tier] * BUDGET_SCALE[level]));
+        int count = 0;
+        for (Entity entity : mc.theWorld.loadedEntityList) {
+            if (!(entity instanceof EntityLivingBase) || entity == camera) continue;
+            double distanceSq = entity.getDistanceSq(camera.posX, camera.posY, camera.posZ);
+            if (distanceSq > cullDistanceSq) continue;
+            if (count == distances.length) {
+                distances = Arrays.copyOf(distances, count * 2);
+            }
+            distances[count++] = distanceSq;
+        }
+        budgetDistanceSq = count > budget ? select(distances, count, budget - 1) : Double.MAX_VALUE;
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public void onRenderLiving(RenderLivingEvent.Pre<EntityLivingBase> event) {
+        long profileStart = profiler.begin(PROFILE_RENDER_LIVING);
+        try {
+            handleRenderLiving(event);
+        } finally {
+            profiler.end(PROFILE_RENDER_LIVING, profileStart);
+        }
+    }
+
+    private void handleRenderLiving(RenderLivingEvent.Pre<EntityLivingBase> event) {
+        if (layersGetter != null && !wrappedRenderers.contains(event.renderer)) {
+            wrapArmorLayers(event.renderer);
+        }
+
+        // Event coordinates are relative to the camera
+        double distanceSq = event.x * event.x + event.y * event.y + event.z * event.z;
+        if (distanceSq <= NEAR_DISTANCE_SQ || isExempt(event.entity)) return;
+
+        if (distanceSq > cullDistanceSq || distanceSq > budgetDistanceSq) {
+            event.setCanceled(true);
+            frameCulled++;
+            culled++;
+        }
+    }
+
+    @SubscribeEvent
+    public void onRenderSpecials(RenderLivingEvent.Specials.Pre<EntityLivingBase> event) {
+        double distanceSq = event.x * event.x + event.y * event.y + event.z * event.z;
+        if (distanceSq > nameTagDistanceSq && !isExempt(event.entity)) {
+            event.setCanceled(true);
+        }
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    // RenderLivingEvent only covers living entities, the rest is limited through their render distance
+    private void handleClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || mc.theWorld == null) return;
+        if (++tickCounter % WEIGHT_UPDATE_INTERVAL != 0) return;
+
+        double scale = TIER_WEIGHT_SCALE[platform.getTier().ordinal()] * DISTANCE_SCALE[governor.getEffectiveLevel()];
+        boolean changed = scale != appliedWeightScale;
+        appliedWeightScale = scale;
+        for (Entity entity : mc.theWorld.loadedEntityList) {
+            if (entity instanceof EntityLivingBase) continue;
+
+            Double base = baseWeights.get(entity);
+            if (base == null) {
+                base = entity.renderDistanceWeight;
+                baseWeights.put(entity, base);
+            } else if (!changed) {
+                continue;
+            }
+            entity.renderDistanceWeight = base * scale;
+        }
+    }
+
+    /** Whether armor should be drawn on the entity this frame. */
+    public boolean shouldRenderArmor(EntityLivingBase entity) {
+        Entity camera = mc.getRenderViewEntity();
+        return camera == null
+            || entity.getDistanceSq(camera.posX, camera.posY, camera.posZ) <= armorDistanceSq;
+    }
+
+    public int getLastFrameCulled() {
+        return lastFrameCulled;
+    }
+
+    public long getCulledCount() {
+        return culled;
+    }
+
+    // Bosses and whatever the camera rides or is ridden by are always drawn
+    private boolean isExempt(EntityLivingBase entity) {
+        Entity camera = mc.getRenderViewEntity();
+        return entity instanceof IBossDisplayData || entity == camera
+            || (camera != null && (entity == camera.ridingEntity || entity == camera.riddenByEntity));
+    }
+
+    private void wrapArmorLayers(RendererLivingEntity<?> renderer) {
+        wrappedRenderers.add(renderer);
+        try {
+            @SuppressWarnings("unchecked")
+            List<LayerRenderer<EntityLivingBase>> layers = (List<LayerRenderer<EntityLivingBase>>) layersGetter.invoke(renderer);
+            for (int i = 0; i < layers.size(); i++) {
+                if (layers.get(i) instanceof LayerArmorBase) {
+                    layers.set(i, new CulledLayer(layers.get(i), this));
+                }
+            }
+        } catch (Throwable t) {
+            System.err.println("Failed to wrap armor layers: " + t.getMessage());
+        }
+    }
+
+    /** The k-th smallest (0 based) of the first n values, reorders them. */
+    static double select(double[] values, int n, int k) {
+        int left = 0;
+        int right = n - 1;
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    double swap = values[i];
+                    values[i] = values[j];
+                    values[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+
+    // Armor layer that is skipped beyond the armor distance
+    private static class CulledLayer implements LayerRenderer<EntityLivingBase> {
+        private final LayerRenderer<EntityLivingBase> layer;
+        private final EntityCuller culler;
+
+        CulledLayer(LayerRenderer<EntityLivingBase> layer, EntityCuller culler) {
+            this.layer = layer;
+            this.culler = culler;
+        }
+
+        @Override
+        public void doRenderLayer(EntityLivingBase entity, float limbSwing, float limbSwingAmount, float partialTicks,
+                                  float ageInTicks, float netHeadYaw, float headPitch, float scale) {
+            if (culler.shouldRenderArmor(entity)) {
+                layer.doRenderLayer(entity, limbSwing, limbSwingAmount, partialTicks, ageInTicks, netHeadYaw,
+                    headPitch, scale);
+            }
+        }
+
+        @Override
+        public boolean shouldCombineTextures() {
+            return layer.shouldCombineTextures();
+        }
+    }
+}
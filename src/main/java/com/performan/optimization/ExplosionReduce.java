@@ -1,32 +1,193 @@
 package com.performan.optimization;
 
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraft.world.Explosion;
 import net.minecraft.entity.Entity;
 import net.minecraft.util.Vec3;
 import net.minecraftforge.event.world.ExplosionEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
 import net.minecraft.util.EnumParticleTypes;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
-public class ExplosionReduce {
+public class ExplosionReduce implements MemoryManager.Releasable {
     private static final Random random = new Random();
     private static final float PARTICLE_REDUCTION = 0.6f;
     private static final int MAX_AFFECTED_BLOCKS = 100;
     private static final boolean ENABLE_FAST_RAYTRACING = true;
     private static final float DEFAULT_EXPLOSION_SIZE = 4.0f;
+    private static final double CLUSTER_RADIUS = 8.0;
+    private static final int MAX_PENDING_EXPLOSIONS = 256;
+    private static final int MAX_CLUSTER_PARTICLES = 64;
+    
+    private static final int PROFILE_EXPLOSION_START = HotPathProfiler.getInstance().handler("ExplosionReduce.onExplosionStart");
+    private static final int PROFILE_SERVER_EXPLOSION_START = HotPathProfiler.getInstance().handler("ExplosionReduce.onServerExplosionStart");
+    private static final int PROFILE_EXPLOSION_DETONATE = HotPathProfiler.getInstance().handler("ExplosionReduce.onExplosionDetonate");
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("ExplosionReduce.onClientTick");
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final FastExplosion fastExplosion = new FastExplosion();
+    
+    private static Field explosionSizeField;
+    private static boolean explosionSizeLookupFailed = false;
+    
+    // Client detonations of the current tick, merged at the end of the tick
+    private final double[] pendingX = new double[MAX_PENDING_EXPLOSIONS];
+    private final double[] pendingY = new double[MAX_PENDING_EXPLOSIONS];
+    private final double[] pendingZ = new double[MAX_PENDING_EXPLOSIONS];
+    private final float[] pendingSize = new float[MAX_PENDING_EXPLOSIONS];
+    private int pendingCount = 0;
+    private World pendingWorld;
+    
+    private final CellTable clusterCells = new CellTable(MAX_PENDING_EXPLOSIONS * 2);
+    private final List<Cluster> clusters = new ArrayList<>();
+    private int clusterCount = 0;
+    
+    private static class Cluster {
+        double sumX, sumY, sumZ;
+        double centerX, centerY, centerZ;
+        double spread;
+        float maxSize;
+        int count;
+        // Pending indices of the members, reused across ticks
+        int[] members = new int[8];
+        
+        void reset(int member, double x, double y, double z, float size) {
+            sumX = centerX = x;
+            sumY = centerY = y;
+            sumZ = centerZ = z;
+            spread = 0;
+            maxSize = size;
+            members[0] = member;
+            count = 1;
+        }
+        
+        void add(int member, double x, double y, double z, float size) {
+            if (count == members.length) {
+                members = Arrays.copyOf(members, count * 2);
+            }
+            members[count++] = member;
+            sumX += x;
+            sumY += y;
+            sumZ += z;
+            centerX = sumX / count;
+            centerY = sumY / count;
+            centerZ = sumZ / count;
+            maxSize = Math.max(maxSize, size);
+        }
+        
+        // The center moves as members join, so the spread is measured once they all have
+        void updateSpread(double[] xs, double[] ys, double[] zs) {
+            double maxDistanceSq = 0;
+            for (int i = 0; i < count; i++) {
+                int member = members[i];
+                double dx = xs[member] - centerX;
+                double dy = ys[member] - centerY;
+                double dz = zs[member] - centerZ;
+                maxDistanceSq = Math.max(maxDistanceSq, dx * dx + dy * dy + dz * dz);
+            }
+            spread = Math.sqrt(maxDistanceSq);
+        }
+    }
+    
+    // Open-addressing map from a cell key to the index of the cluster anchored there.
+    // Sized for every pending explosion anchoring its own cell, so it never grows.
+    private static class CellTable {
+        private final long[] keys;
+        // Cluster index plus one, zero marks an empty slot
+        private final int[] values;
+        private final int mask;
+        
+        CellTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(expectedSize - 1) << 2;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+        
+        int get(long key) {
+            for (int i = slot(key); values[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i] - 1;
+            }
+            return -1;
+        }
+        
+        void put(long key, int value) {
+            int i = slot(key);
+            while (values[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value + 1;
+        }
+        
+        void clear() {
+            Arrays.fill(values, 0);
+        }
+        
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
     
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public void onExplosionStart(ExplosionEvent.Start event) {
+        long profileStart = profiler.begin(PROFILE_EXPLOSION_START);
+        try {
+            handleExplosionStart(event);
+        } finally {
+            profiler.end(PROFILE_EXPLOSION_START, profileStart);
+        }
+    }
+
+    private void handleExplosionStart(ExplosionEvent.Start event) {
         if (event.world.isRemote) {
             optimizeClientExplosion(event);
         }
     }
 
+    // Runs last so explosions canceled by other mods are never taken over
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onServerExplosionStart(ExplosionEvent.Start event) {
+        long profileStart = profiler.begin(PROFILE_SERVER_EXPLOSION_START);
+        try {
+            handleServerExplosionStart(event);
+        } finally {
+            profiler.end(PROFILE_SERVER_EXPLOSION_START, profileStart);
+        }
+    }
+
+    private void handleServerExplosionStart(ExplosionEvent.Start event) {
+        if (!ENABLE_FAST_RAYTRACING || event.world.isRemote || !(event.world instanceof WorldServer)) return;
+        
+        try {
+            if (fastExplosion.explode((WorldServer) event.world, event.explosion)) {
+                event.setCanceled(true);
+            }
+        } catch (Exception e) {
+            System.err.println("Error in fast explosion: " + e.getMessage());
+        }
+    }
+
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public void onExplosionDetonate(ExplosionEvent.Detonate event) {
+        long profileStart = profiler.begin(PROFILE_EXPLOSION_DETONATE);
+        try {
+            handleExplosionDetonate(event);
+        } finally {
+            profiler.end(PROFILE_EXPLOSION_DETONATE, profileStart);
+        }
+    }
+
+    private void handleExplosionDetonate(ExplosionEvent.Detonate event) {
         if (event.world.isRemote) {
             optimizeExplosionEffects(event);
         } else {
@@ -34,47 +195,166 @@ public class ExplosionReduce {
         }
     }
 
+    @Override
+    public void releaseMemory(int stage) {
+        // Called from the client thread, the solver guards its own buffers
+        fastExplosion.getSolver().releaseBuffers();
+        if (stage >= MemoryManager.STAGE_RELEASE && pendingCount == 0) {
+            clusters.clear();
+            clusterCount = 0;
+        }
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    private void handleClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || pendingCount == 0) return;
+        
+        try {
+            emitClusteredEffects();
+        } catch (Exception e) {
+            System.err.println("Error emitting explosion effects: " + e.getMessage());
+        } finally {
+            pendingCount = 0;
+            pendingWorld = null;
+        }
+    }
+
     private void optimizeClientExplosion(ExplosionEvent.Start event) {
         if (random.nextFloat() > PARTICLE_REDUCTION) {
             event.setCanceled(true);
-            return;
-        }
-
-        if (ENABLE_FAST_RAYTRACING) {
-            optimizeRayTracing(event.explosion);
         }
     }
 
     private void optimizeExplosionEffects(ExplosionEvent.Detonate event) {
-        Explosion explosion = event.explosion;
-        World world = event.world;
-
-        if (world.isRemote) {
-            float size = DEFAULT_EXPLOSION_SIZE;
-            int particleCount = (int)(size * 2);
-            
-            for (int i = 0; i < particleCount; i++) {
-                if (random.nextFloat() <= PARTICLE_REDUCTION) {
-                    continue;
+        if (pendingWorld != null && pendingWorld != event.world) {
+            pendingCount = 0;
+        }
+        if (pendingCount == MAX_PENDING_EXPLOSIONS) return;
+        
+        Vec3 position = event.explosion.getPosition();
+        pendingX[pendingCount] = position.xCoord;
+        pendingY[pendingCount] = position.yCoord;
+        pendingZ[pendingCount] = position.zCoord;
+        pendingSize[pendingCount] = getExplosionSize(event.explosion);
+        pendingCount++;
+        pendingWorld = event.world;
+    }
+    
+    private void emitClusteredEffects() {
+        clusterCells.clear();
+        clusterCount = 0;
+        
+        for (int i = 0; i < pendingCount; i++) {
+            addToCluster(i, pendingX[i], pendingY[i], pendingZ[i], pendingSize[i]);
+        }
+        
+        for (int i = 0; i < clusterCount; i++) {
+            Cluster cluster = clusters.get(i);
+            cluster.updateSpread(pendingX, pendingY, pendingZ);
+            spawnClusterEffect(pendingWorld, cluster);
+        }
+    }
+    
+    private void addToCluster(int member, double x, double y, double z, float size) {
+        int cellX = (int) Math.floor(x / CLUSTER_RADIUS);
+        int cellY = (int) Math.floor(y / CLUSTER_RADIUS);
+        int cellZ = (int) Math.floor(z / CLUSTER_RADIUS);
+        
+        // Join the nearest cluster anchored in a neighbouring cell
+        Cluster nearest = null;
+        double nearestDistanceSq = CLUSTER_RADIUS * CLUSTER_RADIUS;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int index = clusterCells.get(cellKey(cellX + dx, cellY + dy, cellZ + dz));
+                    if (index < 0) continue;
+                    
+                    Cluster cluster = clusters.get(index);
+                    double ox = x - cluster.centerX;
+                    double oy = y - cluster.centerY;
+                    double oz = z - cluster.centerZ;
+                    double distanceSq = ox * ox + oy * oy + oz * oz;
+                    if (distanceSq <= nearestDistanceSq) {
+                        nearest = cluster;
+                        nearestDistanceSq = distanceSq;
+                    }
                 }
-
-                double posX = explosion.getPosition().xCoord;
-                double posY = explosion.getPosition().yCoord;
-                double posZ = explosion.getPosition().zCoord;
-
-                double x = posX + (random.nextFloat() - 0.5) * size;
-                double y = posY + (random.nextFloat() - 0.5) * size;
-                double z = posZ + (random.nextFloat() - 0.5) * size;
-                
-                world.spawnParticle(
-                    random.nextBoolean() ? EnumParticleTypes.SMOKE_NORMAL : EnumParticleTypes.EXPLOSION_NORMAL,
-                    x, y, z,
-                    (random.nextFloat() - 0.5) * 0.2,
-                    (random.nextFloat() - 0.5) * 0.2,
-                    (random.nextFloat() - 0.5) * 0.2
-                );
             }
         }
+        
+        if (nearest != null) {
+            nearest.add(member, x, y, z, size);
+            return;
+        }
+        
+        long key = cellKey(cellX, cellY, cellZ);
+        if (clusterCells.get(key) >= 0) {
+            // The cell anchor is taken by a cluster that is too far, emit on its own
+            Cluster single = nextCluster();
+            single.reset(member, x, y, z, size);
+            return;
+        }
+        
+        Cluster cluster = nextCluster();
+        cluster.reset(member, x, y, z, size);
+        clusterCells.put(key, clusterCount - 1);
+    }
+    
+    private Cluster nextCluster() {
+        if (clusterCount == clusters.size()) {
+            clusters.add(new Cluster());
+        }
+        return clusters.get(clusterCount++);
+    }
+    
+    private void spawnClusterEffect(World world, Cluster cluster) {
+        // Sub-linear growth, a hundred blasts look like ten times one
+        double scale = Math.sqrt(cluster.count);
+        float size = cluster.maxSize;
+        double radius = size + cluster.spread;
+        int particleCount = Math.min(MAX_CLUSTER_PARTICLES, (int) (size * 2 * scale));
+        
+        for (int i = 0; i < particleCount; i++) {
+            double x = cluster.centerX + (random.nextFloat() - 0.5) * radius;
+            double y = cluster.centerY + (random.nextFloat() - 0.5) * radius;
+            double z = cluster.centerZ + (random.nextFloat() - 0.5) * radius;
+            
+            world.spawnParticle(
+                random.nextBoolean() ? EnumParticleTypes.SMOKE_NORMAL : EnumParticleTypes.EXPLOSION_NORMAL,
+                x, y, z,
+                (random.nextFloat() - 0.5) * 0.2,
+                (random.nextFloat() - 0.5) * 0.2,
+                (random.nextFloat() - 0.5) * 0.2
+            );
+        }
+    }
+    
+    private static long cellKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFF) << 42) | ((long) (y & 0xFFFFF) << 22) | (z & 0x3FFFFF);
+    }
+    
+    private static float getExplosionSize(Explosion explosion) {
+        if (explosionSizeLookupFailed) return DEFAULT_EXPLOSION_SIZE;
+        
+        try {
+            if (explosionSizeField == null) {
+                explosionSizeField = ReflectionHelper.findField(Explosion.class, "explosionSize", "field_77280_f");
+            }
+            return explosionSizeField.getFloat(explosion);
+        } catch (Exception e) {
+            System.err.println("Failed to read explosion size: " + e.getMessage());
+            explosionSizeLookupFailed = true;
+            return DEFAULT_EXPLOSION_SIZE;
+        }
     }
 
     private void limitExplosionDamage(ExplosionEvent.Detonate event) {
@@ -87,15 +367,4 @@ public class ExplosionReduce {
             }
         }
     }
-
-    private void optimizeRayTracing(Explosion explosion) {
-        double stepSize = 0.3;
-        int maxSteps = 7;
-        
-        Vec3 explosionPos = explosion.getPosition();
-        float size = DEFAULT_EXPLOSION_SIZE;
-        
-        double maxDistance = size * 2.0;
-        maxDistance *= maxDistance;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,330 @@
+package com.performan.optimization;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Explosion ray caster that finds the same blocks as vanilla Explosion.doExplosionA.
+ * Ray directions come from a precomputed table, block resistance is read once per
+ * position through a dense cache covering the blast volume, and large blasts are
+ * traced in parallel. The solver has no Minecraft dependencies so it can run on a synthetic world.
+ *
+ * Not thread-safe, use one instance per thread that starts explosions.
+ */
+public class ExplosionSolver {
+    /** Returned by a BlockAccess for air, which does not weaken the ray. */
+    public static final float AIR = Float.NaN;
+
+    // Vanilla constants, the float/double mix matters for identical results
+    private static final float STEP_DECAY = 0.22500001F;
+    private static final double STEP_LENGTH = 0.30000001192092896D;
+    private static final int GRID = 16;
+
+    private static final int MAX_CACHE_CELLS = 1 << 21; // 128^3
+    private static final int PARALLEL_RAYS_PER_TASK = 64;
+
+    // Cached values are stored XOR this NaN pattern so a zeroed array means unknown
+    private static final int CACHE_MARK = 0x7FC00001;
+
+    public static final int RAY_COUNT;
+    private static final double[] RAY_X;
+    private static final double[] RAY_Y;
+    private static final double[] RAY_Z;
+
+    static {
+        // Rays towards every cell on the surface of a 16x16x16 cube, in vanilla order
+        int count = GRID * GRID * GRID - (GRID - 2) * (GRID - 2) * (GRID - 2);
+        RAY_COUNT = count;
+        RAY_X = new double[count];
+        RAY_Y = new double[count];
+        RAY_Z = new double[count];
+
+        int ray = 0;
+        for (int j = 0; j < GRID; j++) {
+            for (int k = 0; k < GRID; k++) {
+                for (int l = 0; l < GRID; l++) {
+                    if (j == 0 || j == GRID - 1 || k == 0 || k == GRID - 1 || l == 0 || l == GRID - 1) {
+                        double dx = (double) ((float) j / 15.0F * 2.0F - 1.0F);
+                        double dy = (double) ((float) k / 15.0F * 2.0F - 1.0F);
+                        double dz = (double) ((float) l / 15.0F * 2.0F - 1.0F);
+                        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                        RAY_X[ray] = dx / length;
+                        RAY_Y[ray] = dy / length;
+                        RAY_Z[ray] = dz / length;
+                        ray++;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Block resistance lookup, must be safe to call from pool threads for parallel solves. */
+    public interface BlockAccess {
+        float getResistance(int x, int y, int z);
+    }
+
+    /** Optional per-block veto, mirrors Entity.verifyExplosion. */
+    public interface BlockFilter {
+        boolean canDestroy(int x, int y, int z, float power);
+    }
+
+    // Reused between solves
+    private int[] cache = new int[0];
+    private long[] rayOutput = new long[0];
+    private final int[] rayCounts = new int[RAY_COUNT];
+
+    // Per-solve state, read by the ray tasks
+    private double originX;
+    private double originY;
+    private double originZ;
+    private float size;
+    private float[] rayRandoms;
+    private BlockAccess access;
+    private BlockFilter filter;
+    private int maxSteps;
+    private boolean parallel;
+
+    // Cache bounds in block coordinates, cacheSide is 0 when the blast is too big
+    private int cacheMinX;
+    private int cacheMinY;
+    private int cacheMinZ;
+    private int cacheSide;
+
+    // Statistics, only counted for single-threaded solves
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (y & 0xFFF) << 26) | (z & 0x3FFFFFFL);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << 26 >> 52);
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << 38 >> 38);
+    }
+
+    /**
+     * Traces all rays of an explosion.
+     *
+     * @param rayRandoms one world.rand.nextFloat() per ray, drawn in ray order
+     * @param filter may be null
+     * @param parallel trace on the common ForkJoin pool
+     * @return packed positions in the order vanilla first adds them to its set
+     */
+    public synchronized long[] solve(double x, double y, double z, float size, float[] rayRandoms,
+                        BlockAccess access, BlockFilter filter, boolean parallel) {
+        this.originX = x;
+        this.originY = y;
+        this.originZ = z;
+        this.size = size;
+        this.rayRandoms = rayRandoms;
+        this.access = access;
+        this.filter = filter;
+        this.maxSteps = maxSteps(size);
+        this.parallel = parallel;
+        if (rayOutput.length < RAY_COUNT * maxSteps) {
+            rayOutput = new long[RAY_COUNT * maxSteps];
+        }
+
+        try {
+            prepareCache();
+            if (parallel) {
+                ForkJoinPool.commonPool().invoke(new RayTask(0, RAY_COUNT));
+            } else {
+                traceRays(0, RAY_COUNT);
+            }
+            return collect(rayOutput, rayCounts, maxSteps);
+        } finally {
+            this.rayRandoms = null;
+            this.access = null;
+            this.filter = null;
+        }
+    }
+
+    /** Straight port of the vanilla loop without caching, the baseline for verification. */
+    public static long[] solveReference(double x, double y, double z, float size, float[] rayRandoms,
+                                        BlockAccess access, BlockFilter filter) {
+        int steps = maxSteps(size);
+        long[] output = new long[RAY_COUNT * steps];
+        int[] counts = new int[RAY_COUNT];
+
+        for (int ray = 0; ray < RAY_COUNT; ray++) {
+            float power = size * (0.7F + rayRandoms[ray] * 0.6F);
+            double px = x;
+            double py = y;
+            double pz = z;
+            int count = 0;
+            for (; power > 0.0F; power -= STEP_DECAY) {
+                int bx = floor(px);
+                int by = floor(py);
+                int bz = floor(pz);
+                float resistance = access.getResistance(bx, by, bz);
+                if (!Float.isNaN(resistance)) {
+                    power -= (resistance + 0.3F) * 0.3F;
+                }
+                if (power > 0.0F && (filter == null || filter.canDestroy(bx, by, bz, power))) {
+                    output[ray * steps + count++] = pack(bx, by, bz);
+                }
+                px += RAY_X[ray] * STEP_LENGTH;
+                py += RAY_Y[ray] * STEP_LENGTH;
+                pz += RAY_Z[ray] * STEP_LENGTH;
+            }
+            counts[ray] = count;
+        }
+        return collect(output, counts, steps);
+    }
+
+    /** Upper bound of the distance any ray of this explosion can reach, in blocks. */
+    public static int getReach(float size) {
+        return (int) Math.ceil(maxSteps(size) * STEP_LENGTH) + 1;
+    }
+
+    // Drops the reused buffers, a large blast can leave several megabytes behind
+    public synchronized void releaseBuffers() {
+        cache = new int[0];
+        rayOutput = new long[0];
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    private void traceRays(int from, int to) {
+        for (int ray = from; ray < to; ray++) {
+            float power = size * (0.7F + rayRandoms[ray] * 0.6F);
+            double px = originX;
+            double py = originY;
+            double pz = originZ;
+            int base = ray * maxSteps;
+            int count = 0;
+            long last = 0;
+
+            // Stops as soon as the ray is spent, exactly where vanilla does
+            for (; power > 0.0F; power -= STEP_DECAY) {
+                int bx = floor(px);
+                int by = floor(py);
+                int bz = floor(pz);
+                float resistance = getResistance(bx, by, bz);
+                if (!Float.isNaN(resistance)) {
+                    power -= (resistance + 0.3F) * 0.3F;
+                }
+                if (power > 0.0F && (filter == null || filter.canDestroy(bx, by, bz, power))) {
+                    // Consecutive steps often stay in one block
+                    long packed = pack(bx, by, bz);
+                    if (count == 0 || packed != last) {
+                        rayOutput[base + count++] = packed;
+                        last = packed;
+                    }
+                }
+                px += RAY_X[ray] * STEP_LENGTH;
+                py += RAY_Y[ray] * STEP_LENGTH;
+                pz += RAY_Z[ray] * STEP_LENGTH;
+            }
+            rayCounts[ray] = count;
+        }
+    }
+
+    private float getResistance(int x, int y, int z) {
+        int cx = x - cacheMinX;
+        int cy = y - cacheMinY;
+        int cz = z - cacheMinZ;
+        int side = cacheSide;
+        if (cx < 0 || cy < 0 || cz < 0 || cx >= side || cy >= side || cz >= side) {
+            return access.getResistance(x, y, z);
+        }
+
+        int index = (cy * side + cz) * side + cx;
+        int cached = cache[index];
+        if (cached != 0) {
+            if (!parallel) cacheHits++;
+            return Float.intBitsToFloat(cached ^ CACHE_MARK);
+        }
+
+        // Racing pool threads compute the same value, so plain writes are fine
+        if (!parallel) cacheMisses++;
+        float resistance = access.getResistance(x, y, z);
+        cache[index] = Float.floatToRawIntBits(resistance) ^ CACHE_MARK;
+        return resistance;
+    }
+
+    private void prepareCache() {
+        int reach = getReach(size);
+        int side = 2 * reach + 1;
+        if ((long) side * side * side > MAX_CACHE_CELLS) {
+            // Huge blasts touch few blocks per cell of volume, read them directly
+            cacheSide = 0;
+            return;
+        }
+
+        cacheMinX = floor(originX) - reach;
+        cacheMinY = floor(originY) - reach;
+        cacheMinZ = floor(originZ) - reach;
+        cacheSide = side;
+
+        int cells = side * side * side;
+        if (cache.length < cells) {
+            cache = new int[cells];
+        } else {
+            Arrays.fill(cache, 0, cells, 0);
+        }
+    }
+
+    private static long[] collect(long[] output, int[] counts, int steps) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+
+        // Concatenated in ray order, the caller's set drops the repeats
+        long[] result = new long[total];
+        int position = 0;
+        for (int ray = 0; ray < RAY_COUNT; ray++) {
+            System.arraycopy(output, ray * steps, result, position, counts[ray]);
+            position += counts[ray];
+        }
+        return result;
+    }
+
+    private static int maxSteps(float size) {
+        // Each step costs at least STEP_DECAY, plus slack for float rounding
+        return (int) Math.ceil(size * 1.3F / STEP_DECAY) + 2;
+    }
+
+    // Same rounding as MathHelper.floor_double
+    private static int floor(double value) {
+        int i = (int) value;
+        return value < (double) i ? i - 1 : i;
+    }
+
+    private class RayTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        RayTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_RAYS_PER_TASK) {
+                traceRays(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RayTask(from, middle), new RayTask(middle, to));
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.performan.optimization;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.enchantment.EnchantmentProtection;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.item.EntityTNTPrimed;
+import net.minecraft.entity.monster.EntityCreeper;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.play.server.S27PacketExplosion;
+import net.minecraft.util.AxisAlignedBB;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.DamageSource;
+import net.minecraft.util.MathHelper;
+import net.minecraft.util.Vec3;
+import net.minecraft.world.Explosion;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.event.ForgeEventFactory;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs server explosions through the ExplosionSolver. Called after ExplosionEvent.Start
+ * and repeats the rest of WorldServer.newExplosion: the block rays, the entity pass
+ * of doExplosionA, doExplosionB and the explosion packets.
+ *
+ * Start with -Dperforman.explosion.verify=true to compare every result with a plain
+ * port of the vanilla loop and log differences.
+ */
+public class FastExplosion {
+    private static final float PARALLEL_MIN_SIZE = 8.0f;
+    private static final double PACKET_RANGE_SQ = 4096.0;
+    private static final int WORLD_BORDER = 30000000;
+    private static final boolean VERIFY = Boolean.getBoolean("performan.explosion.verify");
+    private static final String VANILLA_PACKAGE = "net.minecraft.";
+
+    private static final int PROFILE_SOLVE = HotPathProfiler.getInstance().section("ExplosionSolver.solve");
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final ExplosionSolver solver = new ExplosionSolver();
+    private final float[] rayRandoms = new float[ExplosionSolver.RAY_COUNT];
+
+    private Field sizeField;
+    private Field exploderField;
+    private Field smokingField;
+    private boolean reflectionFailed = false;
+    private boolean[] moddedStates;
+
+    // Statistics
+    private long explosions = 0;
+    private long parallelExplosions = 0;
+    private long mismatches = 0;
+
+    /**
+     * @return false if the explosion was left to vanilla, nothing has been changed then
+     */
+    public boolean explode(WorldServer world, Explosion explosion) {
+        if (!resolveFields()) return false;
+
+        float size;
+        Entity exploder;
+        boolean smoking;
+        try {
+            size = sizeField.getFloat(explosion);
+            exploder = (Entity) exploderField.get(explosion);
+            smoking = smokingField.getBoolean(explosion);
+        } catch (Exception e) {
+            System.err.println("Failed to read explosion: " + e.getMessage());
+            return false;
+        }
+
+        Vec3 position = explosion.getPosition();
+        double x = position.xCoord;
+        double y = position.yCoord;
+        double z = position.zCoord;
+
+        // Other exploders may veto blocks per ray step, keep those on this thread
+        boolean simpleExploder = exploder == null
+            || exploder.getClass() == EntityTNTPrimed.class
+            || exploder.getClass() == EntityCreeper.class;
+        WorldAccess access = new WorldAccess(world, explosion, exploder);
+        boolean parallel = simpleExploder && size >= PARALLEL_MIN_SIZE
+            && access.loadChunks(x, y, z, ExplosionSolver.getReach(size), getModdedStates());
+        ExplosionSolver.BlockFilter filter = simpleExploder ? null : new ExploderFilter(world, explosion, exploder);
+
+        // Same world.rand draws as vanilla, one per ray in ray order
+        for (int i = 0; i < rayRandoms.length; i++) {
+            rayRandoms[i] = world.rand.nextFloat();
+        }
+
+        long[] positions;
+        long profileStart = profiler.begin(PROFILE_SOLVE);
+        try {
+            positions = solver.solve(x, y, z, size, rayRandoms, access, filter, parallel);
+        } finally {
+            profiler.end(PROFILE_SOLVE, profileStart);
+        }
+        if (VERIFY) {
+            verify(positions, ExplosionSolver.solveReference(x, y, z, size, rayRandoms,
+                new WorldAccess(world, explosion, exploder), filter));
+        }
+
+        // Filling a HashSet in vanilla order keeps its iteration order, and with it
+        // the order of drops in doExplosionB
+        Set<BlockPos> affected = new HashSet<>();
+        for (long packed : positions) {
+            affected.add(new BlockPos(ExplosionSolver.unpackX(packed), ExplosionSolver.unpackY(packed),
+                ExplosionSolver.unpackZ(packed)));
+        }
+        explosion.getAffectedBlockPositions().addAll(affected);
+
+        damageEntities(world, explosion, exploder, size, position);
+
+        explosion.doExplosionB(false);
+        if (!smoking) {
+            explosion.getAffectedBlockPositions().clear();
+        }
+
+        for (EntityPlayer player : world.playerEntities) {
+            if (player.getDistanceSq(x, y, z) < PACKET_RANGE_SQ) {
+                ((EntityPlayerMP) player).playerNetServerHandler.sendPacket(new S27PacketExplosion(
+                    x, y, z, size, explosion.getAffectedBlockPositions(), explosion.getPlayerKnockbackMap().get(player)));
+            }
+        }
+
+        explosions++;
+        if (parallel) parallelExplosions++;
+        return true;
+    }
+
+    public long getExplosionCount() {
+        return explosions;
+    }
+
+    public long getParallelExplosionCount() {
+        return parallelExplosions;
+    }
+
+    public long getMismatchCount() {
+        return mismatches;
+    }
+
+    public ExplosionSolver getSolver() {
+        return solver;
+    }
+
+    // Block states whose resistance is not a plain field read, built once
+    private boolean[] getModdedStates() {
+        if (moddedStates == null) {
+            int maxId = 0;
+            for (IBlockState state : Block.BLOCK_STATE_IDS) {
+                maxId = Math.max(maxId, Block.BLOCK_STATE_IDS.get(state));
+            }
+            boolean[] modded = new boolean[maxId + 1];
+            for (IBlockState state : Block.BLOCK_STATE_IDS) {
+                modded[Block.BLOCK_STATE_IDS.get(state)] = !state.getBlock().getClass().getName().startsWith(VANILLA_PACKAGE);
+            }
+            moddedStates = modded;
+        }
+        return moddedStates;
+    }
+
+    // Entity half of Explosion.doExplosionA
+    private void damageEntities(WorldServer world, Explosion explosion, Entity exploder, float size, Vec3 center) {
+        double x = center.xCoord;
+        double y = center.yCoord;
+        double z = center.zCoord;
+        float diameter = size * 2.0F;
+
+        int minX = MathHelper.floor_double(x - (double) diameter - 1.0D);
+        int maxX = MathHelper.floor_double(x + (double) diameter + 1.0D);
+        int minY = MathHelper.floor_double(y - (double) diameter - 1.0D);
+        int maxY = MathHelper.floor_double(y + (double) diameter + 1.0D);
+        int minZ = MathHelper.floor_double(z - (double) diameter - 1.0D);
+        int maxZ = MathHelper.floor_double(z + (double) diameter + 1.0D);
+        List<Entity> entities = world.getEntitiesWithinAABBExcludingEntity(exploder,
+            new AxisAlignedBB((double) minX, (double) minY, (double) minZ, (double) maxX, (double) maxY, (double) maxZ));
+        ForgeEventFactory.onExplosionDetonate(world, explosion, entities, diameter);
+
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+            if (entity.isImmuneToExplosions()) continue;
+
+            double distance = entity.getDistance(x, y, z) / (double) diameter;
+            if (distance > 1.0D) continue;
+
+            double dx = entity.posX - x;
+            double dy = entity.posY + (double) entity.getEyeHeight() - y;
+            double dz = entity.posZ - z;
+            double length = (double) MathHelper.sqrt_double(dx * dx + dy * dy + dz * dz);
+            if (length == 0.0D) continue;
+
+            dx = dx / length;
+            dy = dy / length;
+            dz = dz / length;
+            double density = (double) world.getBlockDensity(center, entity.getEntityBoundingBox());
+            double impact = (1.0D - distance) * density;
+            entity.attackEntityFrom(DamageSource.setExplosionSource(explosion),
+                (float) ((int) ((impact * impact + impact) / 2.0D * 8.0D * (double) diameter + 1.0D)));
+            double knockback = EnchantmentProtection.func_92092_a(entity, impact);
+            entity.motionX += dx * knockback;
+            entity.motionY += dy * knockback;
+            entity.motionZ += dz * knockback;
+
+            if (entity instanceof EntityPlayer && !((EntityPlayer) entity).capabilities.disableDamage) {
+                explosion.getPlayerKnockbackMap().put((EntityPlayer) entity, new Vec3(dx * impact, dy * impact, dz * impact));
+            }
+        }
+    }
+
+    private void verify(long[] fast, long[] reference) {
+        List<Long> fastOrder = firstOccurrences(fast);
+        List<Long> referenceOrder = firstOccurrences(reference);
+        if (!fastOrder.equals(referenceOrder)) {
+            mismatches++;
+            System.err.println("Explosion solver mismatch: " + fastOrder.size() + " blocks, vanilla "
+                + referenceOrder.size());
+        }
+    }
+
+    private static List<Long> firstOccurrences(long[] positions) {
+        Set<Long> seen = new LinkedHashSet<>();
+        for (long packed : positions) {
+            seen.add(packed);
+        }
+        return new ArrayList<>(seen);
+    }
+
+    private boolean resolveFields() {
+        if (reflectionFailed) return false;
+        if (sizeField != null) return true;
+
+        try {
+            sizeField = ReflectionHelper.findField(Explosion.class, "explosionSize", "field_77280_f");
+            exploderField = ReflectionHelper.findField(Explosion.class, "exploder", "field_77283_e");
+            smokingField = ReflectionHelper.findField(Explosion.class, "isSmoking", "field_82755_b");
+            return true;
+        } catch (Exception e) {
+            System.err.println("Failed to access explosion fields, using vanilla explosions: " + e.getMessage());
+            sizeField = null;
+            reflectionFailed = true;
+            return false;
+        }
+    }
+
+    // Reads the world like doExplosionA does
+    private static class WorldAccess implements ExplosionSolver.BlockAccess {
+        private final WorldServer world;
+        private final Explosion explosion;
+        private final Entity exploder;
+
+        // Loaded chunks around the blast, used instead of the chunk provider off-thread
+        private Chunk[] chunks;
+        private int chunkMinX;
+        private int chunkMinZ;
+        private int chunksX;
+
+        WorldAccess(WorldServer world, Explosion explosion, Entity exploder) {
+            this.world = world;
+            this.explosion = explosion;
+            this.exploder = exploder;
+        }
+
+        /**
+         * Collects the chunks within reach so pool threads never touch the chunk provider.
+         * Modded blocks may read the world or their tile entity for their resistance, so
+         * their presence anywhere in reach keeps the solve on the server thread.
+         *
+         * @return false if a chunk is not loaded or a modded block is in reach
+         */
+        boolean loadChunks(double x, double y, double z, int reach, boolean[] moddedStates) {
+            int minX = MathHelper.floor_double(x - reach) >> 4;
+            int minZ = MathHelper.floor_double(z - reach) >> 4;
+            int maxX = MathHelper.floor_double(x + reach) >> 4;
+            int maxZ = MathHelper.floor_double(z + reach) >> 4;
+            int sizeX = maxX - minX + 1;
+            Chunk[] loaded = new Chunk[sizeX * (maxZ - minZ + 1)];
+
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                for (int cx = minX; cx <= maxX; cx++) {
+                    if (!world.getChunkProvider().chunkExists(cx, cz)) return false;
+                    Chunk chunk = world.getChunkFromChunkCoords(cx, cz);
+                    if (hasModdedBlocks(chunk, MathHelper.floor_double(y - reach) >> 4,
+                            MathHelper.floor_double(y + reach) >> 4, moddedStates)) {
+                        return false;
+                    }
+                    loaded[(cz - minZ) * sizeX + (cx - minX)] = chunk;
+                }
+            }
+
+            chunks = loaded;
+            chunkMinX = minX;
+            chunkMinZ = minZ;
+            chunksX = sizeX;
+            return true;
+        }
+
+        private static boolean hasModdedBlocks(Chunk chunk, int minSection, int maxSection, boolean[] moddedStates) {
+            ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+            for (int i = Math.max(0, minSection); i <= Math.min(sections.length - 1, maxSection); i++) {
+                if (sections[i] == null || sections[i].isEmpty()) continue;
+                for (char id : sections[i].getData()) {
+                    if (id >= moddedStates.length || moddedStates[id]) return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public float getResistance(int x, int y, int z) {
+            // World.isValid, everything outside reads as air
+            if (y < 0 || y >= 256 || x < -WORLD_BORDER || z < -WORLD_BORDER || x >= WORLD_BORDER || z >= WORLD_BORDER) {
+                return ExplosionSolver.AIR;
+            }
+
+            BlockPos pos = new BlockPos(x, y, z);
+            IBlockState state = chunks != null
+                ? chunks[((z >> 4) - chunkMinZ) * chunksX + ((x >> 4) - chunkMinX)].getBlockState(pos)
+                : world.getBlockState(pos);
+            Block block = state.getBlock();
+            if (block.getMaterial() == Material.air) {
+                return ExplosionSolver.AIR;
+            }
+            return exploder != null
+                ? exploder.getExplosionResistance(explosion, world, pos, state)
+                : block.getExplosionResistance(world, pos, null, explosion);
+        }
+    }
+
+    private static class ExploderFilter implements ExplosionSolver.BlockFilter {
+        private final WorldServer world;
+        private final Explosion explosion;
+        private final Entity exploder;
+
+        ExploderFilter(WorldServer world, Explosion explosion, Entity exploder) {
+            this.world = world;
+            this.explosion = explosion;
+            this.exploder = exploder;
+        }
+
+        @Override
+        public boolean canDestroy(int x, int y, int z, float power) {
+            BlockPos pos = new BlockPos(x, y, z);
+            return exploder.verifyExplosion(explosion, world, pos, world.getBlockState(pos), power);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.performan.optimization;
+
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import java.util.Arrays;
+
+public class FrameTimeTracker {
+    static final int WINDOW_SIZE = 256;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    static final long MAX_FRAME_NANOS = NANOS_PER_SECOND; // Longer gaps are pauses or loading screens
+    private static final long DEFAULT_FRAME_NANOS = NANOS_PER_SECOND / 60;
+
+    private static final FrameTimeTracker INSTANCE = new FrameTimeTracker(WINDOW_SIZE);
+
+    // Ring buffer of frame times in nanoseconds
+    private final long[] frameTimes;
+    private final long[] sortBuffer;
+    private int head = 0;
+    private int count = 0;
+    private long sum = 0;
+    private long lastFrameStart = 0;
+
+    // Cached statistics, recomputed lazily after new samples
+    private boolean statsDirty = true;
+    private long p50 = DEFAULT_FRAME_NANOS;
+    private long p95 = DEFAULT_FRAME_NANOS;
+    private long p99 = DEFAULT_FRAME_NANOS;
+    private long onePercentLow = DEFAULT_FRAME_NANOS;
+
+    public FrameTimeTracker(int windowSize) {
+        this.frameTimes = new long[windowSize];
+        this.sortBuffer = new long[windowSize];
+    }
+
+    public static FrameTimeTracker getInstance() {
+        return INSTANCE;
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) return;
+
+        long now = System.nanoTime();
+        if (lastFrameStart != 0) {
+            long frameNanos = now - lastFrameStart;
+            if (frameNanos > 0 && frameNanos < MAX_FRAME_NANOS) {
+                recordFrame(frameNanos);
+            }
+        }
+        lastFrameStart = now;
+    }
+
+    public void recordFrame(long frameNanos) {
+        if (count == frameTimes.length) {
+            sum -= frameTimes[head];
+        } else {
+            count++;
+        }
+
+        frameTimes[head] = frameNanos;
+        sum += frameNanos;
+        head = (head + 1) % frameTimes.length;
+        statsDirty = true;
+    }
+
+    public void reset() {
+        head = 0;
+        count = 0;
+        sum = 0;
+        lastFrameStart = 0;
+        statsDirty = true;
+    }
+
+    public int getSampleCount() {
+        return count;
+    }
+
+    public long getLatestFrameNanos() {
+        if (count == 0) return DEFAULT_FRAME_NANOS;
+        return frameTimes[(head - 1 + frameTimes.length) % frameTimes.length];
+    }
+
+    public long getMeanFrameNanos() {
+        if (count == 0) return DEFAULT_FRAME_NANOS;
+        return sum / count;
+    }
+
+    public long getP50FrameNanos() {
+        updateStats();
+        return p50;
+    }
+
+    public long getP95FrameNanos() {
+        updateStats();
+        return p95;
+    }
+
+    public long getP99FrameNanos() {
+        updateStats();
+        return p99;
+    }
+
+    // Mean frame time of the slowest 1% of frames
+    public long getOnePercentLowFrameNanos() {
+        updateStats();
+        return onePercentLow;
+    }
+
+    public double getAverageFPS() {
+        return toFPS(getMeanFrameNanos());
+    }
+
+    public double getP95FPS() {
+        return toFPS(getP95FrameNanos());
+    }
+
+    public double getOnePercentLowFPS() {
+        return toFPS(getOnePercentLowFrameNanos());
+    }
+
+    public static double toFPS(long frameNanos) {
+        if (frameNanos <= 0) return 0.0;
+        return (double) NANOS_PER_SECOND / frameNanos;
+    }
+
+    private void updateStats() {
+        if (!statsDirty) return;
+        statsDirty = false;
+
+        if (count == 0) {
+            p50 = p95 = p99 = onePercentLow = DEFAULT_FRAME_NANOS;
+            return;
+        }
+
+        // Sorting a primitive array in place does not allocate
+        System.arraycopy(frameTimes, 0, sortBuffer, 0, count);
+        Arrays.sort(sortBuffer, 0, count);
+
+        p50 = percentile(0.50);
+        p95 = percentile(0.95);
+        p99 = percentile(0.99);
+
+        int worstCount = Math.max(1, (count + 99) / 100);
+        long worstSum = 0;
+        for (int i = count - worstCount; i < count; i++) {
+            worstSum += sortBuffer[i];
+        }
+        onePercentLow = worstSum / worstCount;
+    }
+
+    private long percentile(double fraction) {
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sortBuffer[Math.max(0, Math.min(count - 1, index))];
+    }
+}
@@ -0,0 +1,327 @@
+package com.performan.optimization;
+
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.lwjgl.opengl.GL11;
+import java.util.Arrays;
+
+/**
+ * State-tracking facade for the GL calls made by the mod. It keeps a shadow of the
+ * state it has set and drops calls that would not change anything.
+ *
+ * Vanilla rendering changes capabilities and texture bindings behind our back, so
+ * those are invalidated once per frame; hints persist. There is no texture parameter
+ * cache: the mod sets no texture parameters of its own, and vanilla sets them directly
+ * and deletes and reuses texture names without telling anyone, so texParameteri is
+ * always forwarded.
+ */
+public class GLStateTracker {
+    // Capability bits
+    public static final int CAP_BLEND = 0;
+    public static final int CAP_DEPTH = 1;
+    public static final int CAP_LIGHTING = 2;
+    public static final int CAP_FOG = 3;
+    public static final int CAP_CULL = 4;
+    public static final int CAP_TEXTURE_2D = 5;
+    public static final int CAP_ALPHA = 6;
+    public static final int CAP_DITHER = 7;
+    public static final int CAP_COUNT = 8;
+
+    private static final int[] HINT_TARGETS = {
+        GL11.GL_PERSPECTIVE_CORRECTION_HINT,
+        GL11.GL_POINT_SMOOTH_HINT,
+        GL11.GL_LINE_SMOOTH_HINT,
+        GL11.GL_POLYGON_SMOOTH_HINT,
+        GL11.GL_FOG_HINT
+    };
+
+    private static final int UNKNOWN = -1;
+
+    /** The GL calls the tracker forwards to, so the logic can run against a fake. */
+    public interface Backend {
+        void setCapability(int capability, boolean enabled);
+        void hint(int target, int mode);
+        void blendFunc(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha);
+        void depthFunc(int func);
+        void alphaFunc(int func, float ref);
+        void bindTexture(int texture);
+        void texParameteri(int target, int pname, int param);
+    }
+
+    private static final GLStateTracker INSTANCE = new GLStateTracker(new LwjglBackend());
+
+    private final Backend backend;
+
+    // Shadow state
+    private long capabilities = 0;
+    private long knownCapabilities = 0;
+    private final int[] hints = new int[HINT_TARGETS.length];
+    private final int[] blendFunc = new int[4];
+    private boolean blendFuncKnown = false;
+    private int depthFunc = UNKNOWN;
+    private int alphaFunc = UNKNOWN;
+    private float alphaRef = 0;
+    private int boundTexture = UNKNOWN;
+
+    // Statistics
+    private long issuedCalls = 0;
+    private long elidedCalls = 0;
+
+    public GLStateTracker(Backend backend) {
+        this.backend = backend;
+        invalidate();
+    }
+
+    public static GLStateTracker getInstance() {
+        return INSTANCE;
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        // Runs before the other render tick handlers issue their calls
+        if (event.phase == TickEvent.Phase.START) {
+            invalidateFrameState();
+        }
+    }
+
+    public void enable(int capability) {
+        setCapability(capability, true);
+    }
+
+    public void disable(int capability) {
+        setCapability(capability, false);
+    }
+
+    public void setCapability(int capability, boolean enabled) {
+        long bit = 1L << capability;
+        if ((knownCapabilities & bit) != 0 && ((capabilities & bit) != 0) == enabled) {
+            elidedCalls++;
+            return;
+        }
+
+        backend.setCapability(capability, enabled);
+        issuedCalls++;
+        knownCapabilities |= bit;
+        capabilities = enabled ? capabilities | bit : capabilities & ~bit;
+    }
+
+    public boolean isEnabled(int capability) {
+        return (capabilities & (1L << capability)) != 0;
+    }
+
+    public boolean isKnown(int capability) {
+        return (knownCapabilities & (1L << capability)) != 0;
+    }
+
+    public void hint(int target, int mode) {
+        int index = indexOf(HINT_TARGETS, target);
+        if (index >= 0 && hints[index] == mode) {
+            elidedCalls++;
+            return;
+        }
+
+        backend.hint(target, mode);
+        issuedCalls++;
+        if (index >= 0) {
+            hints[index] = mode;
+        }
+    }
+
+    public void blendFunc(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+        if (blendFuncKnown && blendFunc[0] == srcRGB && blendFunc[1] == dstRGB
+                && blendFunc[2] == srcAlpha && blendFunc[3] == dstAlpha) {
+            elidedCalls++;
+            return;
+        }
+
+        backend.blendFunc(srcRGB, dstRGB, srcAlpha, dstAlpha);
+        issuedCalls++;
+        blendFunc[0] = srcRGB;
+        blendFunc[1] = dstRGB;
+        blendFunc[2] = srcAlpha;
+        blendFunc[3] = dstAlpha;
+        blendFuncKnown = true;
+    }
+
+    public void depthFunc(int func) {
+        if (depthFunc == func) {
+            elidedCalls++;
+            return;
+        }
+
+        backend.depthFunc(func);
+        issuedCalls++;
+        depthFunc = func;
+    }
+
+    public void alphaFunc(int func, float ref) {
+        if (alphaFunc == func && alphaRef == ref) {
+            elidedCalls++;
+            return;
+        }
+
+        backend.alphaFunc(func, ref);
+        issuedCalls++;
+        alphaFunc = func;
+        alphaRef = ref;
+    }
+
+    public void bindTexture(int texture) {
+        if (boundTexture == texture) {
+            elidedCalls++;
+            return;
+        }
+
+        backend.bindTexture(texture);
+        issuedCalls++;
+        boundTexture = texture;
+    }
+
+    public void texParameteri(int target, int pname, int param) {
+        backend.texParameteri(target, pname, param);
+        issuedCalls++;
+    }
+
+    public long getCapabilityBits() {
+        return capabilities;
+    }
+
+    public long getKnownCapabilityBits() {
+        return knownCapabilities;
+    }
+
+    public int getBlendSrcRGB() {
+        return blendFunc[0];
+    }
+
+    public int getBlendDstRGB() {
+        return blendFunc[1];
+    }
+
+    public int getBlendSrcAlpha() {
+        return blendFunc[2];
+    }
+
+    public int getBlendDstAlpha() {
+        return blendFunc[3];
+    }
+
+    public boolean isBlendFuncKnown() {
+        return blendFuncKnown;
+    }
+
+    public int getDepthFunc() {
+        return depthFunc;
+    }
+
+    public int getAlphaFunc() {
+        return alphaFunc;
+    }
+
+    public float getAlphaRef() {
+        return alphaRef;
+    }
+
+    public int getBoundTexture() {
+        return boundTexture;
+    }
+
+    // Forget state that vanilla rendering may have changed since our last call
+    public void invalidateFrameState() {
+        knownCapabilities = 0;
+        blendFuncKnown = false;
+        depthFunc = UNKNOWN;
+        alphaFunc = UNKNOWN;
+        boundTexture = UNKNOWN;
+    }
+
+    public void invalidate() {
+        invalidateFrameState();
+        Arrays.fill(hints, UNKNOWN);
+    }
+
+    public long getIssuedCalls() {
+        return issuedCalls;
+    }
+
+    public long getElidedCalls() {
+        return elidedCalls;
+    }
+
+    public void resetStatistics() {
+        issuedCalls = 0;
+        elidedCalls = 0;
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) return i;
+        }
+        return -1;
+    }
+
+    // Goes through GlStateManager where possible so vanilla's own cache stays in sync
+    private static class LwjglBackend implements Backend {
+        @Override
+        public void setCapability(int capability, boolean enabled) {
+            switch (capability) {
+                case CAP_BLEND:
+                    if (enabled) GlStateManager.enableBlend(); else GlStateManager.disableBlend();
+                    break;
+                case CAP_DEPTH:
+                    if (enabled) GlStateManager.enableDepth(); else GlStateManager.disableDepth();
+                    break;
+                case CAP_LIGHTING:
+                    if (enabled) GlStateManager.enableLighting(); else GlStateManager.disableLighting();
+                    break;
+                case CAP_FOG:
+                    if (enabled) GlStateManager.enableFog(); else GlStateManager.disableFog();
+                    break;
+                case CAP_CULL:
+                    if (enabled) GlStateManager.enableCull(); else GlStateManager.disableCull();
+                    break;
+                case CAP_TEXTURE_2D:
+                    if (enabled) GlStateManager.enableTexture2D(); else GlStateManager.disableTexture2D();
+                    break;
+                case CAP_ALPHA:
+                    if (enabled) GlStateManager.enableAlpha(); else GlStateManager.disableAlpha();
+                    break;
+                case CAP_DITHER:
+                    if (enabled) GL11.glEnable(GL11.GL_DITHER); else GL11.glDisable(GL11.GL_DITHER);
+                    break;
+            }
+        }
+
+        @Override
+        public void hint(int target, int mode) {
+            GL11.glHint(target, mode);
+        }
+
+        @Override
+        public void blendFunc(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+            GlStateManager.tryBlendFuncSeparate(srcRGB, dstRGB, srcAlpha, dstAlpha);
+        }
+
+        @Override
+        public void depthFunc(int func) {
+            GlStateManager.depthFunc(func);
+        }
+
+        @Override
+        public void alphaFunc(int func, float ref) {
+            GlStateManager.alphaFunc(func, ref);
+        }
+
+        @Override
+        public void bindTexture(int texture) {
+            GlStateManager.bindTexture(texture);
+        }
+
+        @Override
+        public void texParameteri(int target, int pname, int param) {
+            GL11.glTexParameteri(target, pname, param);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.performan.optimization;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.settings.KeyBinding;
+import net.minecraftforge.client.event.RenderGameOverlayEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.lwjgl.input.Keyboard;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures the time and allocations of the mod's own event handlers and sections.
+ * Samples go into lock-free log2 histograms so handlers on the client and server
+ * threads can record concurrently. Recording is off until the overlay is opened
+ * or the game is started with -Dperforman.profiler=true. Handler time spent off the
+ * client thread, on the integrated server, is reported per server tick rather than
+ * counted against frames.
+ *
+ * Usage:
+ * <pre>
+ * long start = profiler.begin(SECTION);
+ * try { ... } finally { profiler.end(SECTION, start); }
+ * </pre>
+ */
+public class HotPathProfiler {
+    public static final int MAX_SECTIONS = 32;
+
+    // Bucket i holds samples in [2^i, 2^(i+1)) nanoseconds
+    private static final int BUCKETS = 40;
+
+    // Per-section layout of the data array
+    private static final int COUNT = 0;
+    private static final int TOTAL_NANOS = 1;
+    private static final int MAX_NANOS = 2;
+    private static final int TOTAL_BYTES = 3;
+    private static final int SERVER_NANOS = 4;
+    private static final int FIRST_BUCKET = 5;
+    private static final int STRIDE = FIRST_BUCKET + BUCKETS;
+
+    private static final long OVERLAY_REFRESH_INTERVAL = 500;
+
+    public static final KeyBinding TOGGLE_OVERLAY = new KeyBinding(
+        "Toggle Profiler Overlay",
+        Keyboard.KEY_F7,
+        "Performan Optimizer"
+    );
+    public static final KeyBinding EXPORT_CSV = new KeyBinding(
+        "Export Profiler CSV",
+        Keyboard.KEY_NONE,
+        "Performan Optimizer"
+    );
+
+    private static final HotPathProfiler INSTANCE = new HotPathProfiler();
+
+    private final AtomicLongArray data = new AtomicLongArray(MAX_SECTIONS * STRIDE);
+    private final String[] names = new String[MAX_SECTIONS];
+    private final boolean[] handlers = new boolean[MAX_SECTIONS];
+    private final AtomicInteger sectionCount = new AtomicInteger();
+    private final AtomicInteger frames = new AtomicInteger();
+    private final AtomicInteger serverTicks = new AtomicInteger();
+    // Set on the first frame, until then every sample counts as client time
+    private volatile Thread clientThread;
+
+    // Allocation counters are per thread, so the start value is kept per thread too
+    private final boolean allocationTracking;
+    private final ThreadLocal<long[]> startBytes = ThreadLocal.withInitial(() -> new long[MAX_SECTIONS]);
+
+    private volatile boolean enabled = Boolean.getBoolean("performan.profiler");
+    private boolean overlayVisible = false;
+    private final String[] overlayLines = new String[MAX_SECTIONS + 2];
+    private int overlayLineCount = 0;
+    private long lastOverlayRefresh = 0;
+
+    private HotPathProfiler() {
+        allocationTracking = AllocationCounter.isSupported();
+    }
+
+    public static HotPathProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    /** Registers an event handler; handler sections add up to the mod's cost per frame. */
+    public int handler(String name) {
+        return register(name, true);
+    }
+
+    /** Registers a section nested inside a handler. */
+    public int section(String name) {
+        return register(name, false);
+    }
+
+    /**
+     * @return the start time to pass to {@link #end}, 0 while recording is off
+     */
+    public long begin(int section) {
+        if (!enabled) return 0;
+        if (allocationTracking) {
+            startBytes.get()[section] = AllocationCounter.currentThreadBytes();
+        }
+        return System.nanoTime();
+    }
+
+    public void end(int section, long startNanos) {
+        if (startNanos == 0) return;
+
+        long nanos = System.nanoTime() - startNanos;
+        int base = section * STRIDE;
+        data.incrementAndGet(base + COUNT);
+        data.addAndGet(base + TOTAL_NANOS, nanos);
+        data.incrementAndGet(base + FIRST_BUCKET + bucketOf(nanos));
+        Thread client = clientThread;
+        if (client != null && Thread.currentThread() != client) {
+            data.addAndGet(base + SERVER_NANOS, nanos);
+        }
+
+        long max;
+        while (nanos > (max = data.get(base + MAX_NANOS))) {
+            if (data.compareAndSet(base + MAX_NANOS, max, nanos)) break;
+        }
+
+        if (allocationTracking) {
+            long bytes = AllocationCounter.currentThreadBytes() - startBytes.get()[section];
+            data.addAndGet(base + TOTAL_BYTES, Math.max(0, bytes));
+        }
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+
+        if (TOGGLE_OVERLAY.isPressed()) {
+            overlayVisible = !overlayVisible;
+            if (overlayVisible && !enabled) {
+                reset();
+                enabled = true;
+            }
+        }
+        if (EXPORT_CSV.isPressed()) {
+            exportCSV();
+        }
+    }
+
+    @SubscribeEvent
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        if (enabled && event.phase == TickEvent.Phase.START) {
+            clientThread = Thread.currentThread();
+            frames.incrementAndGet();
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (enabled && event.phase == TickEvent.Phase.START) {
+            serverTicks.incrementAndGet();
+        }
+    }
+
+    @SubscribeEvent
+    public void onRenderOverlay(RenderGameOverlayEvent.Text event) {
+        if (!overlayVisible) return;
+
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - lastOverlayRefresh >= OVERLAY_REFRESH_INTERVAL) {
+            refreshOverlay();
+            lastOverlayRefresh = currentTime;
+        }
+        for (int i = 0; i < overlayLineCount; i++) {
+            event.left.add(overlayLines[i]);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getCount(int section) {
+        return data.get(section * STRIDE + COUNT);
+    }
+
+    public long getTotalNanos(int section) {
+        return data.get(section * STRIDE + TOTAL_NANOS);
+    }
+
+    public long getMaxNanos(int section) {
+        return data.get(section * STRIDE + MAX_NANOS);
+    }
+
+    public long getAllocatedBytes(int section) {
+        return data.get(section * STRIDE + TOTAL_BYTES);
+    }
+
+    /**
+     * @return upper bound of the histogram bucket holding the given percentile
+     */
+    public long getPercentileNanos(int section, double percentile) {
+        int base = section * STRIDE;
+        long count = data.get(base + COUNT);
+        if (count == 0) return 0;
+
+        long rank = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += data.get(base + FIRST_BUCKET + i);
+            if (seen >= rank) {
+                return Math.min((1L << (i + 1)) - 1, data.get(base + MAX_NANOS));
+            }
+        }
+        return data.get(base + MAX_NANOS);
+    }
+
+    public long getServerNanos(int section) {
+        return data.get(section * STRIDE + SERVER_NANOS);
+    }
+
+    /** Mean time per frame spent in handler sections on the client thread. */
+    public long getHandlerNanosPerFrame() {
+        int frameCount = frames.get();
+        if (frameCount == 0) return 0;
+
+        long total = 0;
+        int count = sectionCount.get();
+        for (int i = 0; i < count; i++) {
+            if (handlers[i]) total += getTotalNanos(i) - getServerNanos(i);
+        }
+        return total / frameCount;
+    }
+
+    /** Mean time per integrated server tick spent in handler sections on the server thread. */
+    public long getServerHandlerNanosPerTick() {
+        int tickCount = serverTicks.get();
+        if (tickCount == 0) return 0;
+
+        long total = 0;
+        int count = sectionCount.get();
+        for (int i = 0; i < count; i++) {
+            if (handlers[i]) total += getServerNanos(i);
+        }
+        return total / tickCount;
+    }
+
+    public void reset() {
+        for (int i = 0; i < data.length(); i++) {
+            data.set(i, 0);
+        }
+        frames.set(0);
+        serverTicks.set(0);
+    }
+
+    /**
+     * Writes one row per section to .minecraft/performan/.
+     *
+     * @return the written file, or null on failure
+     */
+    public File exportCSV() {
+        try {
+            File directory = new File(Minecraft.getMinecraft().mcDataDir, "performan");
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            File file = new File(directory, "profile-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv");
+
+            PrintWriter writer = new PrintWriter(new FileWriter(file));
+            try {
+                writer.println("# vendor=" + System.getProperty("java.vendor", "") + " arch="
+                    + System.getProperty("os.arch", "") + " cpus=" + Runtime.getRuntime().availableProcessors()
+                    + " frames=" + frames.get() + " handler_ns_per_frame=" + getHandlerNanosPerFrame()
+                    + " server_ticks=" + serverTicks.get() + " server_handler_ns_per_tick=" + getServerHandlerNanosPerTick());
+                writer.println("section,handler,calls,total_ns,server_ns,mean_ns,p50_ns,p95_ns,p99_ns,max_ns,allocated_bytes,bytes_per_call");
+                int count = sectionCount.get();
+                for (int i = 0; i < count; i++) {
+                    long calls = getCount(i);
+                    writer.println(names[i] + "," + handlers[i] + "," + calls + "," + getTotalNanos(i) + ","
+                        + getServerNanos(i) + ","
+                        + (calls > 0 ? getTotalNanos(i) / calls : 0) + ","
+                        + getPercentileNanos(i, 0.50) + "," + getPercentileNanos(i, 0.95) + ","
+                        + getPercentileNanos(i, 0.99) + "," + getMaxNanos(i) + ","
+                        + getAllocatedBytes(i) + "," + (calls > 0 ? getAllocatedBytes(i) / calls : 0));
+                }
+            } finally {
+                writer.close();
+            }
+
+            System.out.println("Profiler data written to " + file);
+            return file;
+        } catch (Exception e) {
+            System.err.println("Failed to export profiler data: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private int register(String name, boolean handler) {
+        int id = sectionCount.getAndIncrement();
+        if (id >= MAX_SECTIONS) {
+            throw new IllegalStateException("Too many profiler sections: " + name);
+        }
+        names[id] = name;
+        handlers[id] = handler;
+        return id;
+    }
+
+    private void refreshOverlay() {
+        int line = 0;
+        overlayLines[line++] = String.format("Performan: %.3f ms/frame in handlers", getHandlerNanosPerFrame() / 1.0e6);
+        if (serverTicks.get() > 0) {
+            overlayLines[line++] = String.format("Performan: %.3f ms/server tick in handlers", getServerHandlerNanosPerTick() / 1.0e6);
+        }
+
+        int count = sectionCount.get();
+        for (int i = 0; i < count; i++) {
+            long calls = getCount(i);
+            if (calls == 0) continue;
+            overlayLines[line++] = String.format("%s%s: %d calls, avg %.1f p95 %.1f max %.1f us, %d B/call",
+                handlers[i] ? "" : "  ", names[i], calls,
+                getTotalNanos(i) / (calls * 1.0e3), getPercentileNanos(i, 0.95) / 1.0e3,
+                getMaxNanos(i) / 1.0e3, getAllocatedBytes(i) / calls);
+        }
+        overlayLineCount = line;
+    }
+
+    private static int bucketOf(long nanos) {
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+    }
+
+    // Only loaded once com.sun.management is known to exist, Android VMs lack it
+    private static class AllocationCounter {
+        private static com.sun.management.ThreadMXBean bean;
+
+        static boolean isSupported() {
+            try {
+                Class.forName("com.sun.management.ThreadMXBean");
+                java.lang.management.ThreadMXBean platformBean = ManagementFactory.getThreadMXBean();
+                if (!(platformBean instanceof com.sun.management.ThreadMXBean)) return false;
+
+                bean = (com.sun.management.ThreadMXBean) platformBean;
+                if (!bean.isThreadAllocatedMemorySupported()) return false;
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return true;
+            } catch (Throwable t) {
+                System.err.println("Allocation tracking unavailable: " + t.getMessage());
+                return false;
+            }
+        }
+
+        static long currentThreadBytes() {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
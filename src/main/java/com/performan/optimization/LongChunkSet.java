@@ -0,0 +1,162 @@
+package com.performan.optimization;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of chunk coordinates packed into a long.
+ * Lookups, inserts and removals do not allocate; the table only grows
+ * when the load factor is exceeded.
+ */
+public class LongChunkSet {
+    // Packs x = Integer.MIN_VALUE, z = 0, far outside the world border
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float MAX_LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int mask;
+    private int size = 0;
+    private int evictCursor = 0;
+
+    public LongChunkSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / MAX_LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int unpackZ(long key) {
+        return (int) key;
+    }
+
+    public boolean contains(int x, int z) {
+        long key = pack(x, z);
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) return true;
+            if (current == EMPTY) return false;
+        }
+    }
+
+    public boolean add(int x, int z) {
+        long key = pack(x, z);
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        size++;
+        if (size > keys.length * MAX_LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean remove(int x, int z) {
+        long key = pack(x, z);
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == EMPTY) return false;
+            if (current == key) {
+                removeAt(i);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Scans up to {@code maxSlots} table slots from where the previous call stopped and
+     * removes chunks farther than {@code radius} (Chebyshev distance) from the center.
+     *
+     * @return the number of removed chunks
+     */
+    public int evictOutside(int centerX, int centerZ, int radius, int maxSlots) {
+        int removed = 0;
+        int scanned = 0;
+        int cursor = evictCursor & mask;
+
+        while (scanned < maxSlots && size > 0) {
+            long key = keys[cursor];
+            if (key != EMPTY
+                    && (Math.abs(unpackX(key) - centerX) > radius || Math.abs(unpackZ(key) - centerZ) > radius)) {
+                // Backward shift may move another key into this slot, so check it again
+                removeAt(cursor);
+                removed++;
+            } else {
+                cursor = (cursor + 1) & mask;
+            }
+            scanned++;
+        }
+
+        evictCursor = cursor;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        evictCursor = 0;
+    }
+
+    private void removeAt(int index) {
+        // Backward shift deletion keeps probe sequences intact without tombstones
+        int hole = index;
+        int i = (index + 1) & mask;
+        while (keys[i] != EMPTY) {
+            int home = slot(keys[i]);
+            // Move the key if its home slot is not in the cyclic range (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        allocate(newCapacity);
+        for (long key : oldKeys) {
+            if (key == EMPTY) continue;
+            int i = slot(key);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+        evictCursor = 0;
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing spreads neighbouring chunk coordinates across the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,224 @@
+package com.performan.optimization;
+
+import net.minecraft.client.Minecraft;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * Watches heap and direct memory and releases the mod's caches in stages as
+ * pressure rises. Pressure is measured after collections, through pool thresholds
+ * and GC notifications, so it reflects live data rather than garbage.
+ *
+ * When even the critical stage is not enough a collection is requested, but it only
+ * runs while a GUI or loading screen is open.
+ */
+public class MemoryManager {
+    public static final int STAGE_NONE = 0;
+    public static final int STAGE_TRIM = 1;
+    public static final int STAGE_RELEASE = 2;
+    public static final int STAGE_CRITICAL = 3;
+
+    // Fraction of the pool maximum still in use after a collection
+    private static final double[] STAGE_THRESHOLDS = {0.0, 0.70, 0.85, 0.95};
+    private static final long CHECK_INTERVAL = 1000;
+    private static final long MIN_GC_INTERVAL = 60000;
+
+    /** Something holding memory the mod can give back. */
+    public interface Releasable {
+        /** Called on the client thread each time the stage rises, with the new stage. */
+        void releaseMemory(int stage);
+    }
+
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("MemoryManager.onClientTick");
+
+    private static final MemoryManager INSTANCE = new MemoryManager();
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final List<Releasable> releasables = new ArrayList<>();
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    private BufferPoolMXBean directPool;
+    // Default direct memory limit when -XX:MaxDirectMemorySize is not given
+    private final long maxDirectMemory = Runtime.getRuntime().maxMemory();
+
+    // Set from JMX notification threads, handled on the client thread
+    private volatile boolean pressureSignaled = false;
+
+    private int stage = STAGE_NONE;
+    private boolean gcRequested = false;
+    private long lastCheck = 0;
+    private long lastRequestedGC = 0;
+
+    // Statistics
+    private int stageChanges = 0;
+    private int requestedCollections = 0;
+
+    private MemoryManager() {
+        installMonitoring();
+    }
+
+    public static MemoryManager getInstance() {
+        return INSTANCE;
+    }
+
+    public void register(Releasable releasable) {
+        releasables.add(releasable);
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    private void handleClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+
+        try {
+            long currentTime = System.currentTimeMillis();
+            if (pressureSignaled || currentTime - lastCheck >= CHECK_INTERVAL) {
+                pressureSignaled = false;
+                lastCheck = currentTime;
+                updateStage(stageFor(getPressure()));
+            }
+
+            if (gcRequested && isNaturalPause() && currentTime - lastRequestedGC >= MIN_GC_INTERVAL) {
+                gcRequested = false;
+                lastRequestedGC = currentTime;
+                requestedCollections++;
+                System.gc();
+            }
+        } catch (Exception e) {
+            System.err.println("Error checking memory pressure: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the highest used fraction of the old generation or direct memory, measured after the last collection
+     */
+    public double getPressure() {
+        double pressure = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null && usage.getMax() > 0) {
+                pressure = Math.max(pressure, (double) usage.getUsed() / usage.getMax());
+            }
+        }
+        if (directPool != null && maxDirectMemory > 0) {
+            pressure = Math.max(pressure, (double) directPool.getMemoryUsed() / maxDirectMemory);
+        }
+        return pressure;
+    }
+
+    public int getStage() {
+        return stage;
+    }
+
+    public boolean isCollectionRequested() {
+        return gcRequested;
+    }
+
+    public int getStageChanges() {
+        return stageChanges;
+    }
+
+    public int getRequestedCollections() {
+        return requestedCollections;
+    }
+
+    private void updateStage(int newStage) {
+        if (newStage == stage) return;
+
+        int previous = stage;
+        stage = newStage;
+        stageChanges++;
+        if (newStage < previous) return;
+
+        for (Releasable releasable : releasables) {
+            try {
+                releasable.releaseMemory(newStage);
+            } catch (Exception e) {
+                System.err.println("Error releasing memory: " + e.getMessage());
+            }
+        }
+
+        // Only a collection can tell whether releasing was enough
+        if (newStage == STAGE_CRITICAL) {
+            gcRequested = true;
+        }
+    }
+
+    private static int stageFor(double pressure) {
+        for (int i = STAGE_THRESHOLDS.length - 1; i > STAGE_NONE; i--) {
+            if (pressure >= STAGE_THRESHOLDS[i]) return i;
+        }
+        return STAGE_NONE;
+    }
+
+    private boolean isNaturalPause() {
+        Minecraft mc = Minecraft.getMinecraft();
+        return mc.theWorld == null || mc.currentScreen != null;
+    }
+
+    // Eden and survivor spaces of every HotSpot collector, the old generation is what is left
+    private static boolean isYoungPool(MemoryPoolMXBean pool) {
+        String name = pool.getName();
+        return name.contains("Eden") || name.contains("Survivor");
+    }
+
+    private void installMonitoring() {
+        try {
+            NotificationListener listener = new NotificationListener() {
+                @Override
+                public void handleNotification(Notification notification, Object handback) {
+                    pressureSignaled = true;
+                }
+            };
+
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                // Only pools with collection usage say how much survives a GC
+                if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) continue;
+                // Survivor space is sized to be nearly full after a minor GC, eden is always emptied
+                if (isYoungPool(pool)) continue;
+
+                heapPools.add(pool);
+                long max = pool.getUsage().getMax();
+                if (max > 0) {
+                    pool.setCollectionUsageThreshold((long) (max * STAGE_THRESHOLDS[STAGE_TRIM]));
+                }
+            }
+
+            // Threshold crossings arrive through the memory bean
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(listener, null, null);
+
+            // GC notifications catch pressure dropping again, and pools without a maximum
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+                }
+            }
+
+            for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+                if ("direct".equals(pool.getName())) {
+                    directPool = pool;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to install memory monitoring: " + e.getMessage());
+        }
+    }
+}
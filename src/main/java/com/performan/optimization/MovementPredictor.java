@@ -0,0 +1,90 @@
+package com.performan.optimization;
+
+/**
+ * Extrapolates horizontal movement from sampled positions. The velocity is smoothed
+ * over recent samples, and the path counts as predictable once it is faster than
+ * walking and the heading has held for a few samples in a row.
+ */
+public class MovementPredictor {
+    private static final double SMOOTHING = 0.5;
+    private static final double MIN_SPEED = 5.0; // blocks per second, just above walking
+    private static final double MAX_SPEED = 100.0; // blocks per second, anything faster is a teleport
+    private static final double HEADING_COS = Math.cos(Math.toRadians(20.0));
+    private static final int STEADY_SAMPLES = 3;
+
+    private boolean hasSample = false;
+    private double lastX;
+    private double lastZ;
+    // Smoothed, in blocks per second
+    private double velocityX = 0;
+    private double velocityZ = 0;
+    private int steadySamples = 0;
+
+    public void update(double x, double z, double elapsedSeconds) {
+        if (!hasSample || elapsedSeconds <= 0) {
+            hasSample = true;
+            lastX = x;
+            lastZ = z;
+            return;
+        }
+
+        double vx = (x - lastX) / elapsedSeconds;
+        double vz = (z - lastZ) / elapsedSeconds;
+        lastX = x;
+        lastZ = z;
+        double speed = Math.sqrt(vx * vx + vz * vz);
+        if (speed > MAX_SPEED) {
+            reset();
+            return;
+        }
+
+        velocityX += (vx - velocityX) * SMOOTHING;
+        velocityZ += (vz - velocityZ) * SMOOTHING;
+        double smoothedSpeed = getSpeed();
+        if (speed >= MIN_SPEED && smoothedSpeed >= MIN_SPEED
+                && vx * velocityX + vz * velocityZ >= HEADING_COS * speed * smoothedSpeed) {
+            steadySamples++;
+        } else {
+            steadySamples = 0;
+        }
+    }
+
+    /** Forgets the velocity, the next sample starts over. */
+    public void reset() {
+        velocityX = 0;
+        velocityZ = 0;
+        steadySamples = 0;
+    }
+
+    public boolean isPredictable() {
+        return steadySamples >= STEADY_SAMPLES;
+    }
+
+    /** Whether the smoothed heading is within the tolerance of the given direction. */
+    public boolean isHeading(double directionX, double directionZ) {
+        double length = Math.sqrt(directionX * directionX + directionZ * directionZ);
+        double speed = getSpeed();
+        return length > 0 && speed > 0
+            && velocityX * directionX + velocityZ * directionZ >= HEADING_COS * speed * length;
+    }
+
+    public double predictX(double seconds) {
+        return lastX + velocityX * seconds;
+    }
+
+    public double predictZ(double seconds) {
+        return lastZ + velocityZ * seconds;
+    }
+
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    public double getVelocityZ() {
+        return velocityZ;
+    }
+
+    public double getSpeed() {
+        return Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
+    }
+}
@@ -1,7 +1,5 @@
 package com.performan.optimization;
 
-import net.minecraft.client.Minecraft;
-import net.minecraft.client.renderer.GlStateManager;
 import net.minecraft.client.renderer.OpenGlHelper;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent;
@@ -11,75 +9,22 @@ import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL14;
 import org.lwjgl.opengl.GL20;
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Map;
 
 public class OpenGL {
     private static final int MIN_BATCH_SIZE = 256;
-    private static final int MAX_BATCH_SIZE = 4096;
-    private static final int BATCH_SIZE_STEP = 256;
-    private static final int TEXTURE_CACHE_SIZE = 128;
-    private static final int STATE_CACHE_SIZE = 64;
     private static final int LOW_FPS_THRESHOLD = 30;
-    private static final int TARGET_FPS = 60;
     private static final long PERFORMANCE_CHECK_INTERVAL = 1000;
     
-    private final Queue<Integer> textureCache = new ArrayDeque<>(TEXTURE_CACHE_SIZE);
-    private final Queue<GLState> stateCache = new ArrayDeque<>(STATE_CACHE_SIZE);
-    private final Map<Integer, TextureInfo> textureInfoMap = new ConcurrentHashMap<>();
-    
+    private static final int PROFILE_RENDER_TICK = HotPathProfiler.getInstance().handler("OpenGL.onRenderTick");
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
     private int currentBatchSize = MIN_BATCH_SIZE;
-    private int lastBoundTexture = -1;
     private boolean isInBatch = false;
-    private GLState currentState = new GLState();
+    private final GLStateTracker glState = GLStateTracker.getInstance();
     private boolean isAndroid;
     private long lastPerformanceCheck = 0;
     private double averageFPS = 60.0;
-    private int fpsAccumulator = 0;
-    private int fpsSampleCount = 0;
-    
-    private static class TextureInfo {
-        int minFilter;
-        int magFilter;
-        int wrapS;
-        int wrapT;
-        boolean mipmapped;
-        long lastUsed;
-        
-        TextureInfo() {
-            this.lastUsed = System.currentTimeMillis();
-        }
-    }
-    
-    private static class GLState {
-        boolean blend;
-        boolean depth;
-        boolean lighting;
-        boolean fog;
-        boolean cullFace;
-        boolean texture2D;
-        boolean alpha;
-        int blendFunc;
-        int depthFunc;
-        float alphaValue;
-        
-        GLState copy() {
-            GLState state = new GLState();
-            state.blend = this.blend;
-            state.depth = this.depth;
-            state.lighting = this.lighting;
-            state.fog = this.fog;
-            state.cullFace = this.cullFace;
-            state.texture2D = this.texture2D;
-            state.alpha = this.alpha;
-            state.blendFunc = this.blendFunc;
-            state.depthFunc = this.depthFunc;
-            state.alphaValue = this.alphaValue;
-            return state;
-        }
-    }
+    private final FrameTimeTracker frameTimes = FrameTimeTracker.getInstance();
+    private final QualityGovernor governor = QualityGovernor.getInstance();
     
     public OpenGL() {
         detectPlatform();
@@ -87,7 +32,7 @@ public class OpenGL {
     }
     
     private void detectPlatform() {
-        isAndroid = System.getProperty("java.vendor", "").toLowerCase().contains("android");
+        isAndroid = PlatformProfile.getInstance().isMobileDevice();
     }
     
     private void initializeOptimizations() {
@@ -106,30 +51,30 @@ public class OpenGL {
     private void initializeAndroidOptimizations() {
         try {
             // Basic state setup
-            GlStateManager.disableLighting();
-            GlStateManager.disableFog();
-            GlStateManager.disableDepth();
-            GlStateManager.enableTexture2D();
+            glState.disable(GLStateTracker.CAP_LIGHTING);
+            glState.disable(GLStateTracker.CAP_FOG);
+            glState.disable(GLStateTracker.CAP_DEPTH);
+            glState.enable(GLStateTracker.CAP_TEXTURE_2D);
             
             // Set minimal texture parameters
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+            glState.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+            glState.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
             
             // Disable problematic features
-            GL11.glDisable(GL11.GL_DITHER);
-            GL11.glDisable(GL11.GL_ALPHA_TEST);
+            glState.disable(GLStateTracker.CAP_DITHER);
+            glState.disable(GLStateTracker.CAP_ALPHA);
             
             // Set basic blend mode
-            GlStateManager.tryBlendFuncSeparate(770, 771, 1, 0);
+            glState.blendFunc(770, 771, 1, 0);
             
             // Disable VBOs
             OpenGlHelper.setClientActiveTexture(OpenGlHelper.defaultTexUnit);
             
             // Performance hints
-            GL11.glHint(GL11.GL_PERSPECTIVE_CORRECTION_HINT, GL11.GL_FASTEST);
-            GL11.glHint(GL11.GL_POINT_SMOOTH_HINT, GL11.GL_FASTEST);
-            GL11.glHint(GL11.GL_LINE_SMOOTH_HINT, GL11.GL_FASTEST);
-            GL11.glHint(GL11.GL_FOG_HINT, GL11.GL_FASTEST);
+            glState.hint(GL11.GL_PERSPECTIVE_CORRECTION_HINT, GL11.GL_FASTEST);
+            glState.hint(GL11.GL_POINT_SMOOTH_HINT, GL11.GL_FASTEST);
+            glState.hint(GL11.GL_LINE_SMOOTH_HINT, GL11.GL_FASTEST);
+            glState.hint(GL11.GL_FOG_HINT, GL11.GL_FASTEST);
             
             // Disable shaders
             if (OpenGlHelper.shadersSupported) {
@@ -142,9 +87,9 @@ public class OpenGL {
     
     private void initializePCOptimizations() {
         try {
-            GlStateManager.enableTexture2D();
-            GlStateManager.enableDepth();
-            GlStateManager.enableBlend();
+            glState.enable(GLStateTracker.CAP_TEXTURE_2D);
+            glState.enable(GLStateTracker.CAP_DEPTH);
+            glState.enable(GLStateTracker.CAP_BLEND);
             
             if (OpenGlHelper.shadersSupported) {
                 GL20.glUseProgram(0);
@@ -157,17 +102,17 @@ public class OpenGL {
     private void setCommonOptimizations() {
         try {
             // Basic state setup
-            GlStateManager.enableTexture2D();
-            GlStateManager.enableCull();
+            glState.enable(GLStateTracker.CAP_TEXTURE_2D);
+            glState.enable(GLStateTracker.CAP_CULL);
             
             // Set blend mode
-            GlStateManager.tryBlendFuncSeparate(770, 771, 1, 0);
+            glState.blendFunc(770, 771, 1, 0);
             
             // Performance hints
-            GL11.glHint(GL11.GL_PERSPECTIVE_CORRECTION_HINT, GL11.GL_FASTEST);
-            GL11.glHint(GL11.GL_POINT_SMOOTH_HINT, GL11.GL_FASTEST);
-            GL11.glHint(GL11.GL_LINE_SMOOTH_HINT, GL11.GL_FASTEST);
-            GL11.glHint(GL11.GL_FOG_HINT, GL11.GL_FASTEST);
+            glState.hint(GL11.GL_PERSPECTIVE_CORRECTION_HINT, GL11.GL_FASTEST);
+            glState.hint(GL11.GL_POINT_SMOOTH_HINT, GL11.GL_FASTEST);
+            glState.hint(GL11.GL_LINE_SMOOTH_HINT, GL11.GL_FASTEST);
+            glState.hint(GL11.GL_FOG_HINT, GL11.GL_FASTEST);
         } catch (Exception e) {
             System.err.println("Failed to set common OpenGL optimizations: " + e.getMessage());
         }
@@ -175,6 +120,15 @@ public class OpenGL {
     
     @SubscribeEvent
     public void onRenderTick(TickEvent.RenderTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_RENDER_TICK);
+        try {
+            handleRenderTick(event);
+        } finally {
+            profiler.end(PROFILE_RENDER_TICK, profileStart);
+        }
+    }
+
+    private void handleRenderTick(TickEvent.RenderTickEvent event) {
         if (event.phase != TickEvent.Phase.START) return;
         
         try {
@@ -187,116 +141,50 @@ public class OpenGL {
     
     private void updatePerformanceMetrics() {
         try {
-            Minecraft mc = Minecraft.getMinecraft();
             long currentTime = System.currentTimeMillis();
             
-            fpsAccumulator += mc.getDebugFPS();
-            fpsSampleCount++;
-            
             if (currentTime - lastPerformanceCheck >= PERFORMANCE_CHECK_INTERVAL) {
-                if (fpsSampleCount > 0) {
-                    averageFPS = (double)fpsAccumulator / fpsSampleCount;
-                    adjustBatchSize();
+                if (frameTimes.getSampleCount() > 0) {
+                    averageFPS = frameTimes.getP95FPS();
                 }
                 
-                fpsAccumulator = 0;
-                fpsSampleCount = 0;
-                lastPerformanceCheck = currentTime;
+                // Batch size is one of the quality knobs owned by the governor
+                currentBatchSize = governor.getBatchSize();
                 
-                cleanupTextureInfo();
+                lastPerformanceCheck = currentTime;
             }
         } catch (Exception e) {
             System.err.println("Error updating performance metrics: " + e.getMessage());
         }
     }
     
-    private void adjustBatchSize() {
-        if (averageFPS < LOW_FPS_THRESHOLD) {
-            currentBatchSize = Math.max(MIN_BATCH_SIZE, currentBatchSize - BATCH_SIZE_STEP);
-        } else if (averageFPS > TARGET_FPS) {
-            currentBatchSize = Math.min(MAX_BATCH_SIZE, currentBatchSize + BATCH_SIZE_STEP);
-        }
-    }
-    
-    private void cleanupTextureInfo() {
-        try {
-            long currentTime = System.currentTimeMillis();
-            textureInfoMap.entrySet().removeIf(entry -> 
-                currentTime - entry.getValue().lastUsed > 30000);
-        } catch (Exception e) {
-            System.err.println("Error cleaning up texture info: " + e.getMessage());
-        }
-    }
-    
     private void applyDynamicOptimizations() {
         try {
             if (averageFPS < LOW_FPS_THRESHOLD) {
-                // Low FPS optimizations
-                GlStateManager.disableBlend();
-                GlStateManager.disableDepth();
-                GlStateManager.disableLighting();
-                GlStateManager.disableFog();
-                GlStateManager.disableAlpha();
-                GlStateManager.enableTexture2D();
-                GlStateManager.enableCull();
+                // Low FPS optimizations, unchanged state is dropped by the tracker
+                glState.disable(GLStateTracker.CAP_BLEND);
+                glState.disable(GLStateTracker.CAP_DEPTH);
+                glState.disable(GLStateTracker.CAP_LIGHTING);
+                glState.disable(GLStateTracker.CAP_FOG);
+                glState.disable(GLStateTracker.CAP_ALPHA);
+                glState.enable(GLStateTracker.CAP_TEXTURE_2D);
+                glState.enable(GLStateTracker.CAP_CULL);
                 
-                GL11.glHint(GL11.GL_PERSPECTIVE_CORRECTION_HINT, GL11.GL_FASTEST);
-                GL11.glHint(GL11.GL_POINT_SMOOTH_HINT, GL11.GL_FASTEST);
-                GL11.glHint(GL11.GL_LINE_SMOOTH_HINT, GL11.GL_FASTEST);
-                GL11.glHint(GL11.GL_FOG_HINT, GL11.GL_FASTEST);
+                glState.hint(GL11.GL_PERSPECTIVE_CORRECTION_HINT, GL11.GL_FASTEST);
+                glState.hint(GL11.GL_POINT_SMOOTH_HINT, GL11.GL_FASTEST);
+                glState.hint(GL11.GL_LINE_SMOOTH_HINT, GL11.GL_FASTEST);
+                glState.hint(GL11.GL_FOG_HINT, GL11.GL_FASTEST);
             }
         } catch (Exception e) {
             System.err.println("Error applying dynamic optimizations: " + e.getMessage());
         }
     }
     
-    public void pushState() {
-        try {
-            GLState newState = currentState.copy();
-            if (stateCache.size() >= STATE_CACHE_SIZE) {
-                stateCache.poll();
-            }
-            stateCache.offer(newState);
-        } catch (Exception e) {
-            System.err.println("Error pushing GL state: " + e.getMessage());
-        }
-    }
-    
-    public void popState() {
-        try {
-            GLState state = stateCache.poll();
-            if (state != null) {
-                applyState(state);
-                currentState = state;
-            }
-        } catch (Exception e) {
-            System.err.println("Error popping GL state: " + e.getMessage());
-        }
+    public long getIssuedGLCalls() {
+        return glState.getIssuedCalls();
     }
     
-    private void applyState(GLState state) {
-        try {
-            if (state.blend != currentState.blend) {
-                if (state.blend) GlStateManager.enableBlend();
-                else GlStateManager.disableBlend();
-            }
-            
-            if (state.depth != currentState.depth) {
-                if (state.depth) GlStateManager.enableDepth();
-                else GlStateManager.disableDepth();
-            }
-            
-            if (state.texture2D != currentState.texture2D) {
-                if (state.texture2D) GlStateManager.enableTexture2D();
-                else GlStateManager.disableTexture2D();
-            }
-            
-            if (state.cullFace != currentState.cullFace) {
-                if (state.cullFace) GlStateManager.enableCull();
-                else GlStateManager.disableCull();
-            }
-        } catch (Exception e) {
-            System.err.println("Error applying GL state: " + e.getMessage());
-        }
+    public long getElidedGLCalls() {
+        return glState.getElidedCalls();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,257 @@
+package com.performan.optimization;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.particle.EffectRenderer;
+import net.minecraft.client.particle.EntityFX;
+import net.minecraft.client.particle.IParticleFactory;
+import net.minecraft.client.renderer.texture.TextureManager;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.EnumParticleTypes;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import java.util.Map;
+
+/**
+ * Caps the particles spawned per frame and alive at once. Every particle type has
+ * its own token bucket; as a bucket drains, spawns far from the camera are dropped
+ * first. All limits shrink when frames take longer than the governor's target.
+ */
+public class ParticleBudget {
+    // Last bucket is shared by modded ids and particles added directly
+    private static final int OTHER_BUCKET = EnumParticleTypes.values().length;
+    private static final int BUCKET_COUNT = OTHER_BUCKET + 1;
+
+    private static final float TOKENS_PER_FRAME = 24.0f; // per type
+    private static final float BUCKET_CAPACITY = 96.0f;
+    private static final int SPAWNS_PER_FRAME = 200;
+    private static final int MAX_ALIVE = 3000;
+    private static final float MIN_SCALE = 0.2f;
+
+    // Spawns closer than this are only limited by the tokens
+    private static final double NEAR_DISTANCE = 4.0;
+    private static final double FAR_DISTANCE = 32.0;
+
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("ParticleBudget.onClientTick");
+    private static final int PROFILE_RENDER_TICK = HotPathProfiler.getInstance().handler("ParticleBudget.onRenderTick");
+
+    private static final ParticleBudget INSTANCE = new ParticleBudget();
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final Minecraft mc = Minecraft.getMinecraft();
+    private final FrameTimeTracker frameTimes = FrameTimeTracker.getInstance();
+    private final QualityGovernor governor = QualityGovernor.getInstance();
+
+    private final float[] tokens = new float[BUCKET_COUNT];
+    private float scale = 1.0f;
+    private int frameSpawns = 0;
+    private int alive = 0;
+    private boolean hasCamera = false;
+    private double cameraX;
+    private double cameraY;
+    private double cameraZ;
+
+    // Statistics
+    private long allowed = 0;
+    private long dropped = 0;
+
+    private ParticleBudget() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            tokens[i] = BUCKET_CAPACITY;
+        }
+    }
+
+    public static ParticleBudget getInstance() {
+        return INSTANCE;
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    private void handleClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) return;
+
+        try {
+            if (mc.theWorld != null && mc.effectRenderer != null
+                    && !(mc.effectRenderer instanceof BudgetedEffectRenderer)) {
+                installRenderer();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to install particle budget: " + e.getMessage());
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_RENDER_TICK);
+        try {
+            handleRenderTick(event);
+        } finally {
+            profiler.end(PROFILE_RENDER_TICK, profileStart);
+        }
+    }
+
+    private void handleRenderTick(TickEvent.RenderTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) return;
+
+        try {
+            long frameNanos = frameTimes.getP95FrameNanos();
+            scale = frameNanos <= 0 ? 1.0f
+                : Math.max(MIN_SCALE, Math.min(1.0f, (float) governor.getTargetFrameNanos() / frameNanos));
+            refill();
+
+            Entity camera = mc.getRenderViewEntity();
+            hasCamera = camera != null;
+            if (hasCamera) {
+                cameraX = camera.posX;
+                cameraY = camera.posY;
+                cameraZ = camera.posZ;
+            }
+
+            if (mc.effectRenderer != null) {
+                alive = parseCount(mc.effectRenderer.getStatistics());
+            }
+        } catch (Exception e) {
+            System.err.println("Error updating particle budget: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Takes a token for a particle of the given type at the given position.
+     *
+     * @return false if the particle should not be spawned
+     */
+    public boolean tryAcquire(int particleId, double x, double y, double z) {
+        int bucket = particleId >= 0 && particleId < OTHER_BUCKET ? particleId : OTHER_BUCKET;
+        double distanceSq = distanceSqToCamera(x, y, z);
+        boolean near = distanceSq <= NEAR_DISTANCE * NEAR_DISTANCE;
+
+        if (tokens[bucket] < 1.0f
+                || (!near && (frameSpawns >= SPAWNS_PER_FRAME * scale || alive >= MAX_ALIVE * scale))) {
+            dropped++;
+            return false;
+        }
+
+        // The allowed range shrinks with the bucket so far spawns go first
+        double fill = tokens[bucket] / (BUCKET_CAPACITY * scale);
+        double cutoff = NEAR_DISTANCE + (FAR_DISTANCE - NEAR_DISTANCE) * Math.min(1.0, fill);
+        if (distanceSq > cutoff * cutoff) {
+            dropped++;
+            return false;
+        }
+
+        tokens[bucket] -= 1.0f;
+        frameSpawns++;
+        alive++;
+        allowed++;
+        return true;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public int getAliveCount() {
+        return alive;
+    }
+
+    public long getAllowedCount() {
+        return allowed;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public void resetStatistics() {
+        allowed = 0;
+        dropped = 0;
+    }
+
+    private void refill() {
+        float capacity = BUCKET_CAPACITY * scale;
+        float rate = TOKENS_PER_FRAME * scale;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            tokens[i] = Math.min(capacity, tokens[i] + rate);
+        }
+        frameSpawns = 0;
+    }
+
+    private double distanceSqToCamera(double x, double y, double z) {
+        if (!hasCamera) return 0;
+        double dx = x - cameraX;
+        double dy = y - cameraY;
+        double dz = z - cameraZ;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void installRenderer() {
+        EffectRenderer previous = mc.effectRenderer;
+        BudgetedEffectRenderer renderer = new BudgetedEffectRenderer(mc.theWorld, mc.renderEngine, this);
+
+        // Keep factories registered by other mods
+        try {
+            Map<Integer, IParticleFactory> factories = ReflectionHelper.getPrivateValue(
+                EffectRenderer.class, previous, "particleTypes", "field_178932_g");
+            for (Map.Entry<Integer, IParticleFactory> entry : factories.entrySet()) {
+                renderer.registerParticle(entry.getKey(), entry.getValue());
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to copy particle factories: " + e.getMessage());
+        }
+
+        mc.effectRenderer = renderer;
+    }
+
+    private static int parseCount(String statistics) {
+        int count = 0;
+        for (int i = 0; i < statistics.length(); i++) {
+            char c = statistics.charAt(i);
+            if (c < '0' || c > '9') break;
+            count = count * 10 + (c - '0');
+        }
+        return count;
+    }
+
+    private static class BudgetedEffectRenderer extends EffectRenderer {
+        private final ParticleBudget budget;
+        private boolean spawning = false;
+
+        BudgetedEffectRenderer(World world, TextureManager textureManager, ParticleBudget budget) {
+            super(world, textureManager);
+            this.budget = budget;
+        }
+
+        @Override
+        public EntityFX spawnEffectParticle(int particleId, double x, double y, double z,
+                                            double xSpeed, double ySpeed, double zSpeed, int... parameters) {
+            if (!budget.tryAcquire(particleId, x, y, z)) {
+                return null;
+            }
+
+            // The particle created here is already paid for in addEffect
+            spawning = true;
+            try {
+                return super.spawnEffectParticle(particleId, x, y, z, xSpeed, ySpeed, zSpeed, parameters);
+            } finally {
+                spawning = false;
+            }
+        }
+
+        @Override
+        public void addEffect(EntityFX effect) {
+            if (spawning || budget.tryAcquire(OTHER_BUCKET, effect.posX, effect.posY, effect.posZ)) {
+                super.addEffect(effect);
+            }
+        }
+    }
+}
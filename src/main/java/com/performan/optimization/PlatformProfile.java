@@ -0,0 +1,280 @@
+package com.performan.optimization;
+
+import org.lwjgl.opengl.GL11;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+/**
+ * Classifies the device into a performance tier from its core count, heap and
+ * direct memory limits, GL renderer and a short CPU and memory bandwidth benchmark.
+ * The benchmark only runs when no cached profile matches the current hardware.
+ *
+ * Start with -Dperforman.tier=low|medium|high to override the result.
+ */
+public class PlatformProfile {
+    public enum Tier {
+        LOW, MEDIUM, HIGH
+    }
+
+    private static final String CACHE_FILE = "platform.properties";
+    private static final int CACHE_VERSION = 1;
+
+    // Benchmark sizes, together well under 100 ms on a phone
+    private static final int CPU_ITERATIONS = 4000000;
+    private static final int COPY_LONGS = 2 * 1024 * 1024; // 16 MB
+    private static final int COPY_ROUNDS = 4;
+
+    // Score thresholds, a point each
+    private static final long MB = 1024L * 1024L;
+    private static final double CPU_FAST = 400.0; // iterations per microsecond
+    private static final double CPU_VERY_FAST = 1000.0;
+    private static final double COPY_FAST = 4000.0; // MB/s
+    private static final double COPY_VERY_FAST = 10000.0;
+    private static final int MEDIUM_SCORE = 4;
+    private static final int HIGH_SCORE = 7;
+
+    // Renderer names of mobile and integrated GPUs
+    private static final String[] MOBILE_GPUS = {"adreno", "mali", "powervr", "tegra", "videocore", "gl4es", "angle"};
+    private static final String[] INTEGRATED_GPUS = {"intel", "llvmpipe", "softpipe", "swrast", "gdi generic", "microsoft basic"};
+
+    private static final PlatformProfile INSTANCE = new PlatformProfile();
+
+    private final boolean mobile;
+    private final int cores;
+    private final long maxHeap;
+    private final long maxDirectMemory;
+    private String renderer = "";
+    private String vendor = "";
+    private double cpuScore = 0;
+    private double copyBandwidth = 0;
+    private Tier tier;
+    private boolean loaded = false;
+
+    private PlatformProfile() {
+        mobile = System.getProperty("java.vendor", "").toLowerCase().contains("android");
+        cores = Runtime.getRuntime().availableProcessors();
+        maxHeap = Runtime.getRuntime().maxMemory();
+        maxDirectMemory = readMaxDirectMemory(maxHeap);
+        // Until load() runs only the Android check is known
+        tier = mobile ? Tier.LOW : Tier.HIGH;
+    }
+
+    public static PlatformProfile getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reads the cached profile from the given directory, or measures and caches it.
+     * Needs the GL context, so call it on the client thread.
+     */
+    public synchronized void load(File directory) {
+        if (loaded) return;
+        loaded = true;
+
+        try {
+            renderer = String.valueOf(GL11.glGetString(GL11.GL_RENDERER));
+            vendor = String.valueOf(GL11.glGetString(GL11.GL_VENDOR));
+        } catch (Throwable t) {
+            System.err.println("Failed to read GL renderer: " + t.getMessage());
+        }
+
+        File file = new File(directory, CACHE_FILE);
+        if (!readCache(file)) {
+            runBenchmark();
+            writeCache(file);
+        }
+
+        tier = classify();
+        String override = System.getProperty("performan.tier");
+        if (override != null) {
+            try {
+                tier = Tier.valueOf(override.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown performan.tier " + override);
+            }
+        }
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    /** An Android VM, where the mobile system properties and UI apply. */
+    public boolean isAndroid() {
+        return mobile;
+    }
+
+    /** Android, or a desktop VM running on a mobile GPU through a wrapper. */
+    public boolean isMobileDevice() {
+        return mobile || matches(renderer, MOBILE_GPUS);
+    }
+
+    /** Devices where the adaptive optimizations should run. */
+    public boolean isConstrained() {
+        return tier == Tier.LOW || isMobileDevice();
+    }
+
+    public int getCores() {
+        return cores;
+    }
+
+    public long getMaxHeap() {
+        return maxHeap;
+    }
+
+    public long getMaxDirectMemory() {
+        return maxDirectMemory;
+    }
+
+    public String getRenderer() {
+        return renderer;
+    }
+
+    public String getVendor() {
+        return vendor;
+    }
+
+    public double getCpuScore() {
+        return cpuScore;
+    }
+
+    public double getCopyBandwidth() {
+        return copyBandwidth;
+    }
+
+    private Tier classify() {
+        int score = 0;
+        if (cores >= 4) score++;
+        if (cores >= 8) score++;
+        if (maxHeap >= 1536 * MB) score++;
+        if (maxHeap >= 3072 * MB) score++;
+        if (maxDirectMemory >= 512 * MB) score++;
+        if (cpuScore >= CPU_FAST) score++;
+        if (cpuScore >= CPU_VERY_FAST) score++;
+        if (copyBandwidth >= COPY_FAST) score++;
+        if (copyBandwidth >= COPY_VERY_FAST) score++;
+        if (!matches(renderer, INTEGRATED_GPUS) && !matches(renderer, MOBILE_GPUS)) score++;
+
+        Tier result = score >= HIGH_SCORE ? Tier.HIGH : score >= MEDIUM_SCORE ? Tier.MEDIUM : Tier.LOW;
+        // Phones throttle under sustained load, never start them on the high preset
+        if (isMobileDevice() && result == Tier.HIGH) {
+            result = Tier.MEDIUM;
+        }
+        return result;
+    }
+
+    private void runBenchmark() {
+        // First round warms up the JIT, the second is measured
+        long sink = 0;
+        long cpuNanos = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            sink += mix(CPU_ITERATIONS);
+            cpuNanos = System.nanoTime() - start;
+        }
+        cpuScore = CPU_ITERATIONS / Math.max(1.0, cpuNanos / 1000.0);
+
+        try {
+            long[] source = new long[COPY_LONGS];
+            long[] target = new long[COPY_LONGS];
+            System.arraycopy(source, 0, target, 0, COPY_LONGS);
+            long start = System.nanoTime();
+            for (int i = 0; i < COPY_ROUNDS; i++) {
+                source[i] = sink;
+                System.arraycopy(source, 0, target, 0, COPY_LONGS);
+            }
+            long copyNanos = Math.max(1, System.nanoTime() - start);
+            // Read and write per copied byte
+            copyBandwidth = 2.0 * COPY_ROUNDS * COPY_LONGS * 8 / MB / (copyNanos / 1.0e9);
+        } catch (OutOfMemoryError e) {
+            copyBandwidth = 0;
+        }
+    }
+
+    // Integer and floating point mix the JIT cannot fold away
+    private static long mix(int iterations) {
+        long x = 0x9E3779B97F4A7C15L;
+        double d = 1.0;
+        for (int i = 0; i < iterations; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            d = d * 1.0000001 + (x & 0xFF);
+        }
+        return x + (long) d;
+    }
+
+    private String fingerprint() {
+        return CACHE_VERSION + "|" + cores + "|" + maxHeap + "|" + maxDirectMemory + "|" + renderer + "|"
+            + System.getProperty("java.version", "") + "|" + System.getProperty("os.arch", "");
+    }
+
+    private boolean readCache(File file) {
+        if (!file.isFile()) return false;
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+            if (!fingerprint().equals(properties.getProperty("fingerprint"))) return false;
+
+            cpuScore = Double.parseDouble(properties.getProperty("cpuScore"));
+            copyBandwidth = Double.parseDouble(properties.getProperty("copyBandwidth"));
+            return true;
+        } catch (Exception e) {
+            System.err.println("Failed to read platform profile: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeCache(File file) {
+        Properties properties = new Properties();
+        properties.setProperty("fingerprint", fingerprint());
+        properties.setProperty("cpuScore", Double.toString(cpuScore));
+        properties.setProperty("copyBandwidth", Double.toString(copyBandwidth));
+
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("Cannot create " + directory);
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "Performan platform benchmark, delete to measure again");
+        } catch (Exception e) {
+            System.err.println("Failed to write platform profile: " + e.getMessage());
+        }
+    }
+
+    private static long readMaxDirectMemory(long fallback) {
+        try {
+            for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                if (argument.startsWith("-XX:MaxDirectMemorySize=")) {
+                    return parseSize(argument.substring("-XX:MaxDirectMemorySize=".length()));
+                }
+            }
+        } catch (Throwable t) {
+            // No management beans on this VM
+        }
+        // The JVM default is the heap limit
+        return fallback;
+    }
+
+    private static long parseSize(String value) {
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        long multiplier = unit == 'k' ? 1024L : unit == 'm' ? MB : unit == 'g' ? 1024L * MB : 1L;
+        String digits = multiplier == 1L ? value : value.substring(0, value.length() - 1);
+        return Long.parseLong(digits) * multiplier;
+    }
+
+    private static boolean matches(String text, String[] needles) {
+        String lower = text.toLowerCase();
+        for (String needle : needles) {
+            if (lower.contains(needle)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,384 @@
+package com.performan.optimization;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.GuiIngameMenu;
+import net.minecraft.client.gui.GuiMainMenu;
+import net.minecraft.client.gui.GuiOptions;
+import net.minecraft.client.settings.GameSettings;
+import net.minecraftforge.client.event.GuiOpenEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.InputEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.lwjgl.input.Keyboard;
+
+/**
+ * Single owner of the quality knobs (render distance, particles, fancy graphics,
+ * mipmaps and the OpenGL batch size). Other optimizers request changes through
+ * this class instead of writing GameSettings themselves.
+ *
+ * Degraded values must never reach options.txt, or they would become the next
+ * launch's baseline. While the options screens are open, where vanilla saves, the
+ * baseline is written back instead, and {@link #writeBaseline} fixes up the copies
+ * SettingsWriter saves.
+ *
+ * The controller itself is deterministic: {@link #update(long, long)} only depends
+ * on the frame times and timestamps passed in, so it can be driven by synthetic traces.
+ */
+public class QualityGovernor {
+    public static final int LEVEL_NONE = 0;
+    public static final int LEVEL_LIGHT = 1;
+    public static final int LEVEL_MEDIUM = 2;
+    public static final int LEVEL_HEAVY = 3;
+    public static final int LEVEL_SEVERE = 4;
+
+    private static final int MIN_RENDER_DISTANCE = 2;
+    private static final int MAX_RENDER_DISTANCE = 16;
+    private static final double DEFAULT_TARGET_FPS = 45.0;
+
+    // PI controller tuning, error is the relative frame time overshoot
+    private static final double KP = 1.0;
+    private static final double KI = 0.5;
+    private static final double INTEGRAL_LIMIT = 2.0;
+    private static final double DEGRADE_THRESHOLD = 0.25;
+    private static final double RESTORE_THRESHOLD = -0.2;
+    private static final long DEGRADE_DWELL_NANOS = 1000000000L;
+    private static final long RESTORE_DWELL_NANOS = 3000000000L;
+    private static final long MAX_STEP_NANOS = 250000000L;
+
+    // Per-level adjustments, indexed by level
+    private static final int[] RENDER_DISTANCE_REDUCTION = {0, 1, 2, 3, 4};
+    private static final int[] MIN_PARTICLE_SETTING = {0, 1, 1, 2, 2};
+    private static final int[] BATCH_SIZE = {4096, 2048, 1024, 512, 256};
+
+    private static final int PROFILE_RENDER_TICK = HotPathProfiler.getInstance().handler("QualityGovernor.onRenderTick");
+
+    private static final QualityGovernor INSTANCE = new QualityGovernor();
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+
+    // User-chosen settings the governor degrades from
+    private int baseRenderDistance = 8;
+    private int baseParticleSetting = 0;
+    private boolean baseFancyGraphics = true;
+    private int baseMipmapLevels = 4;
+
+    // Controller state
+    private boolean adaptive = false;
+    private long targetFrameNanos = (long) (1000000000L / DEFAULT_TARGET_FPS);
+    private int level = LEVEL_NONE;
+    private double integral = 0;
+    private long lastUpdateTime = 0;
+    private long lastLevelChange = 0;
+
+    // Transient requests from other optimizers
+    private boolean rapidMovement = false;
+    private int renderDistanceCap = 0;
+    private boolean suspended = false;
+
+    // Values last written to GameSettings, -1 when nothing was written yet
+    private int appliedRenderDistance = -1;
+    private int appliedParticleSetting = -1;
+    private int appliedFancyGraphics = -1;
+    private int appliedMipmapLevels = -1;
+    private int levelChanges = 0;
+    private int rendererReloads = 0;
+
+    public static QualityGovernor getInstance() {
+        return INSTANCE;
+    }
+
+    @SubscribeEvent
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_RENDER_TICK);
+        try {
+            handleRenderTick(event);
+        } finally {
+            profiler.end(PROFILE_RENDER_TICK, profileStart);
+        }
+    }
+
+    private void handleRenderTick(TickEvent.RenderTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) return;
+
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc.thePlayer == null || mc.theWorld == null) return;
+
+        try {
+            update(FrameTimeTracker.getInstance().getP95FrameNanos(), System.nanoTime());
+            if (applyTo(mc.gameSettings)) {
+                // Rebuilding the atlas would stall exactly when frames are already slow,
+                // so mipmap changes wait for the next texture reload
+                SettingsApplicator.getInstance().submit(mc.gameSettings, SettingsApplicator.COST_RENDERERS);
+            }
+        } catch (Exception e) {
+            System.err.println("Error updating quality governor: " + e.getMessage());
+        }
+    }
+
+    @SubscribeEvent
+    public void onGuiOpen(GuiOpenEvent event) {
+        boolean inOptions;
+        if (event.gui instanceof GuiOptions) {
+            inOptions = true;
+        } else if (event.gui == null || event.gui instanceof GuiIngameMenu || event.gui instanceof GuiMainMenu) {
+            inOptions = false;
+        } else {
+            // Sub-screens of the options stay in the options
+            return;
+        }
+        if (inOptions == suspended) return;
+
+        suspended = inOptions;
+        Minecraft mc = Minecraft.getMinecraft();
+        if (applyTo(mc.gameSettings) && mc.theWorld != null) {
+            SettingsApplicator.getInstance().submit(mc.gameSettings, SettingsApplicator.COST_RENDERERS);
+        }
+    }
+
+    // F3+H and F3+P save options.txt from the game, it is written again with the baseline
+    @SubscribeEvent
+    public void onKeyInput(InputEvent.KeyInputEvent event) {
+        if (!Keyboard.getEventKeyState() || !Keyboard.isKeyDown(Keyboard.KEY_F3)) return;
+
+        int key = Keyboard.getEventKey();
+        if (key == Keyboard.KEY_H || key == Keyboard.KEY_P) {
+            SettingsWriter.getInstance().save(Minecraft.getMinecraft().gameSettings);
+        }
+    }
+
+    /**
+     * Feeds one frame time sample into the controller.
+     *
+     * @return true if the quality level changed
+     */
+    public boolean update(long frameNanos, long nowNanos) {
+        if (lastUpdateTime == 0) {
+            lastUpdateTime = nowNanos;
+            lastLevelChange = nowNanos;
+            return false;
+        }
+
+        long elapsed = Math.min(MAX_STEP_NANOS, Math.max(0, nowNanos - lastUpdateTime));
+        lastUpdateTime = nowNanos;
+        if (!adaptive) return false;
+
+        double error = (double) (frameNanos - targetFrameNanos) / targetFrameNanos;
+        integral += error * (elapsed / 1.0e9);
+        integral = Math.max(-INTEGRAL_LIMIT, Math.min(INTEGRAL_LIMIT, integral));
+        double output = KP * error + KI * integral;
+
+        long sinceChange = nowNanos - lastLevelChange;
+        int newLevel = level;
+        if (output > DEGRADE_THRESHOLD && sinceChange >= DEGRADE_DWELL_NANOS) {
+            newLevel = Math.min(LEVEL_SEVERE, level + 1);
+        } else if (output < RESTORE_THRESHOLD && sinceChange >= RESTORE_DWELL_NANOS) {
+            newLevel = Math.max(LEVEL_NONE, level - 1);
+        }
+
+        if (newLevel == level) return false;
+
+        level = newLevel;
+        integral = 0;
+        lastLevelChange = nowNanos;
+        levelChanges++;
+        return true;
+    }
+
+    /**
+     * Writes the target values into settings that were just read from disk, without
+     * adopting what they hold.
+     *
+     * @return true if any field was changed
+     */
+    public boolean restore(GameSettings settings) {
+        appliedRenderDistance = -1;
+        return applyTo(settings);
+    }
+
+    /**
+     * Writes the target values into the given settings, skipping unchanged fields.
+     * Values changed by someone else since the last call become the new baseline.
+     *
+     * @return true if any field was changed
+     */
+    public boolean applyTo(GameSettings settings) {
+        adoptExternalChanges(settings);
+
+        int renderDistance = getTargetRenderDistance();
+        int particleSetting = getTargetParticleSetting();
+        boolean fancyGraphics = isTargetFancyGraphics();
+        int mipmapLevels = getTargetMipmapLevels();
+
+        boolean changed = false;
+        boolean needsReload = false;
+        if (settings.renderDistanceChunks != renderDistance) {
+            settings.renderDistanceChunks = renderDistance;
+            changed = true;
+        }
+        if (settings.particleSetting != particleSetting) {
+            settings.particleSetting = particleSetting;
+            changed = true;
+        }
+        if (settings.fancyGraphics != fancyGraphics) {
+            settings.fancyGraphics = fancyGraphics;
+            changed = true;
+            needsReload = true;
+        }
+        if (settings.mipmapLevels != mipmapLevels) {
+            settings.mipmapLevels = mipmapLevels;
+            changed = true;
+        }
+
+        if (appliedRenderDistance != -1 && (appliedRenderDistance != renderDistance || needsReload)) {
+            rendererReloads++;
+        }
+
+        appliedRenderDistance = renderDistance;
+        appliedParticleSetting = particleSetting;
+        appliedFancyGraphics = fancyGraphics ? 1 : 0;
+        appliedMipmapLevels = mipmapLevels;
+        return changed;
+    }
+
+    /**
+     * Puts the baseline into a copy of the live settings that is about to be saved.
+     * Values changed in the live settings by someone else are adopted first.
+     */
+    public void writeBaseline(GameSettings live, GameSettings copy) {
+        adoptExternalChanges(live);
+        copy.renderDistanceChunks = baseRenderDistance;
+        copy.particleSetting = baseParticleSetting;
+        copy.fancyGraphics = baseFancyGraphics;
+        copy.mipmapLevels = baseMipmapLevels;
+    }
+
+    private void adoptExternalChanges(GameSettings settings) {
+        if (appliedRenderDistance == -1) return;
+
+        if (settings.renderDistanceChunks != appliedRenderDistance) {
+            baseRenderDistance = settings.renderDistanceChunks;
+        }
+        if (settings.particleSetting != appliedParticleSetting) {
+            baseParticleSetting = settings.particleSetting;
+        }
+        if ((settings.fancyGraphics ? 1 : 0) != appliedFancyGraphics) {
+            baseFancyGraphics = settings.fancyGraphics;
+        }
+        if (settings.mipmapLevels != appliedMipmapLevels) {
+            baseMipmapLevels = settings.mipmapLevels;
+        }
+    }
+
+    public void setBaseline(int renderDistance, int particleSetting, boolean fancyGraphics, int mipmapLevels) {
+        this.baseRenderDistance = Math.max(MIN_RENDER_DISTANCE, Math.min(MAX_RENDER_DISTANCE, renderDistance));
+        this.baseParticleSetting = particleSetting;
+        this.baseFancyGraphics = fancyGraphics;
+        this.baseMipmapLevels = mipmapLevels;
+    }
+
+    public void setBaseline(GameSettings settings) {
+        setBaseline(settings.renderDistanceChunks, settings.particleSetting,
+            settings.fancyGraphics, settings.mipmapLevels);
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        if (!adaptive) {
+            level = LEVEL_NONE;
+            integral = 0;
+        }
+    }
+
+    public void setTargetFPS(double fps) {
+        this.targetFrameNanos = (long) (1000000000L / Math.max(1.0, fps));
+    }
+
+    public void setRapidMovement(boolean rapidMovement) {
+        this.rapidMovement = rapidMovement;
+    }
+
+    public void setRenderDistanceCap(int cap) {
+        this.renderDistanceCap = cap;
+    }
+
+    public void clearRenderDistanceCap() {
+        this.renderDistanceCap = 0;
+    }
+
+    public long getTargetFrameNanos() {
+        return targetFrameNanos;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public int getBaseRenderDistance() {
+        return baseRenderDistance;
+    }
+
+    public int getBaseParticleSetting() {
+        return baseParticleSetting;
+    }
+
+    public boolean isBaseFancyGraphics() {
+        return baseFancyGraphics;
+    }
+
+    public int getBaseMipmapLevels() {
+        return baseMipmapLevels;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    // Level used for the settings, rapid movement forces at least LIGHT
+    public int getEffectiveLevel() {
+        return rapidMovement ? Math.max(LEVEL_LIGHT, level) : level;
+    }
+
+    // Level written to GameSettings, the baseline while the options are open
+    private int getSettingsLevel() {
+        return suspended ? LEVEL_NONE : getEffectiveLevel();
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    // Rapid movement is left out, a render distance change rebuilds every renderer
+    public int getTargetRenderDistance() {
+        if (suspended) return baseRenderDistance;
+
+        int target = baseRenderDistance - RENDER_DISTANCE_REDUCTION[level];
+        if (renderDistanceCap > 0) {
+            target = Math.min(target, renderDistanceCap);
+        }
+        return Math.max(MIN_RENDER_DISTANCE, Math.min(baseRenderDistance, target));
+    }
+
+    public int getTargetParticleSetting() {
+        return Math.max(baseParticleSetting, MIN_PARTICLE_SETTING[getSettingsLevel()]);
+    }
+
+    public boolean isTargetFancyGraphics() {
+        return baseFancyGraphics && getSettingsLevel() < LEVEL_MEDIUM;
+    }
+
+    public int getTargetMipmapLevels() {
+        return getSettingsLevel() >= LEVEL_HEAVY ? 0 : baseMipmapLevels;
+    }
+
+    public int getBatchSize() {
+        return BATCH_SIZE[getEffectiveLevel()];
+    }
+
+    public int getLevelChanges() {
+        return levelChanges;
+    }
+
+    public int getRendererReloads() {
+        return rendererReloads;
+    }
+}
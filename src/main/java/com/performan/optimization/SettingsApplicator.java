@@ -0,0 +1,248 @@
+package com.performan.optimization;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.ScaledResolution;
+import net.minecraft.client.renderer.texture.TextureMap;
+import net.minecraft.client.settings.GameSettings;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.lwjgl.opengl.Display;
+
+/**
+ * Applies changed video settings with the cheapest action that makes them take effect.
+ * Each field has a cost class; hot fields are applied at once, the rest is coalesced
+ * and the single most expensive pending action runs once changes have settled.
+ *
+ * Callers write GameSettings as usual and then call {@link #submit}.
+ */
+public class SettingsApplicator {
+    // Cost classes, each action includes the ones below it
+    public static final int COST_NONE = 0;
+    public static final int COST_HOT = 1;
+    public static final int COST_RENDERERS = 2;
+    public static final int COST_TEXTURES = 3;
+    public static final int COST_RESOURCES = 4;
+
+    private static final long COALESCE_DELAY = 750; // ms after the last change
+
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("SettingsApplicator.onClientTick");
+
+    private static final SettingsApplicator INSTANCE = new SettingsApplicator();
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+
+    // Values the game currently runs with
+    private boolean known = false;
+    private int renderDistance;
+    private int particleSetting;
+    private int mipmapLevels;
+    private int ambientOcclusion;
+    private int clouds;
+    private int guiScale;
+    private int limitFramerate;
+    private boolean fancyGraphics;
+    private boolean useVbo;
+    private boolean fboEnable;
+    private boolean enableVsync;
+    private float gammaSetting;
+
+    private int pendingCost = COST_NONE;
+    private long lastSubmit = 0;
+
+    // Statistics, indexed by cost class
+    private final int[] actions = new int[COST_RESOURCES + 1];
+
+    public static SettingsApplicator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the current settings as applied, without acting on them. Call once
+     * the game has loaded with its settings.
+     */
+    public synchronized void reset(GameSettings settings) {
+        capture(settings);
+        pendingCost = COST_NONE;
+    }
+
+    /**
+     * Diffs the settings against what is applied, applies hot fields now and
+     * schedules the rest.
+     *
+     * @return the cost class of the change
+     */
+    public int submit(GameSettings settings) {
+        return submit(settings, COST_RESOURCES);
+    }
+
+    /**
+     * Like {@link #submit(GameSettings)}, but changes needing more than maxCost are
+     * left for a later submit without the limit.
+     */
+    public synchronized int submit(GameSettings settings, int maxCost) {
+        if (!known) {
+            capture(settings);
+            return COST_NONE;
+        }
+
+        int cost = classify(settings, maxCost);
+        if (cost == COST_NONE) return cost;
+
+        if (enableVsync != settings.enableVsync) {
+            Display.setVSyncEnabled(settings.enableVsync);
+        }
+        if (guiScale != settings.guiScale) {
+            rescaleScreen();
+        }
+        actions[COST_HOT]++;
+
+        int appliedMipmapLevels = mipmapLevels;
+        capture(settings);
+        if (maxCost < COST_TEXTURES) {
+            mipmapLevels = appliedMipmapLevels;
+        }
+        if (cost > COST_HOT) {
+            pendingCost = Math.max(pendingCost, cost);
+            lastSubmit = System.currentTimeMillis();
+        }
+        return cost;
+    }
+
+    /** Asks for a full resource reload, coalesced with other pending changes. */
+    public synchronized void requestResourceReload() {
+        pendingCost = COST_RESOURCES;
+        lastSubmit = System.currentTimeMillis();
+    }
+
+    /** Asks for the block atlas to be stitched again, for settings outside GameSettings. */
+    public synchronized void requestTextureReload() {
+        pendingCost = Math.max(pendingCost, COST_TEXTURES);
+        lastSubmit = System.currentTimeMillis();
+    }
+
+    /** Runs the pending action now, for example when the settings screen closes. */
+    public synchronized void flush() {
+        if (pendingCost == COST_NONE) return;
+
+        int cost = pendingCost;
+        pendingCost = COST_NONE;
+        runAction(Minecraft.getMinecraft(), cost);
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    private synchronized void handleClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || pendingCost == COST_NONE) return;
+
+        if (System.currentTimeMillis() - lastSubmit >= COALESCE_DELAY) {
+            flush();
+        }
+    }
+
+    public synchronized int getPendingCost() {
+        return pendingCost;
+    }
+
+    public synchronized int getActionCount(int cost) {
+        return actions[cost];
+    }
+
+    private int classify(GameSettings settings, int maxCost) {
+        if (maxCost >= COST_TEXTURES && mipmapLevels != settings.mipmapLevels) {
+            return COST_TEXTURES;
+        }
+        if (fancyGraphics != settings.fancyGraphics
+                || ambientOcclusion != settings.ambientOcclusion
+                || useVbo != settings.useVbo
+                || fboEnable != settings.fboEnable) {
+            return COST_RENDERERS;
+        }
+        // RenderGlobal notices render distance changes by itself
+        if (renderDistance != settings.renderDistanceChunks
+                || particleSetting != settings.particleSetting
+                || clouds != settings.clouds
+                || guiScale != settings.guiScale
+                || limitFramerate != settings.limitFramerate
+                || enableVsync != settings.enableVsync
+                || gammaSetting != settings.gammaSetting) {
+            return COST_HOT;
+        }
+        return COST_NONE;
+    }
+
+    private void runAction(Minecraft mc, int cost) {
+        try {
+            switch (cost) {
+                case COST_RENDERERS:
+                    if (mc.renderGlobal != null) {
+                        mc.renderGlobal.loadRenderers();
+                    }
+                    break;
+                case COST_TEXTURES:
+                    reloadBlockTextures(mc);
+                    break;
+                case COST_RESOURCES:
+                    mc.refreshResources();
+                    break;
+                default:
+                    return;
+            }
+            actions[cost]++;
+        } catch (Exception e) {
+            System.err.println("Failed to apply settings, reloading resources: " + e.getMessage());
+            mc.refreshResources();
+            actions[COST_RESOURCES]++;
+        }
+    }
+
+    // Mipmap levels and texture quality only affect the block atlas, so only it and
+    // the listeners holding its sprites are reloaded, in the order vanilla registers them
+    private void reloadBlockTextures(Minecraft mc) {
+        TextureMap blocks = mc.getTextureMapBlocks();
+        blocks.setMipmapLevels(mipmapLevels);
+        // Baking the models stitches the atlas again
+        mc.getRenderItem().getItemModelMesher().getModelManager().onResourceManagerReload(mc.getResourceManager());
+        mc.getRenderItem().onResourceManagerReload(mc.getResourceManager());
+        // The fluid renderer keeps the water and lava sprites
+        mc.getBlockRendererDispatcher().onResourceManagerReload(mc.getResourceManager());
+        mc.getTextureManager().bindTexture(TextureMap.locationBlocksTexture);
+        blocks.setBlurMipmapDirect(false, mipmapLevels > 0);
+        if (mc.renderGlobal != null) {
+            // Also picks up the block breaking sprites again
+            mc.renderGlobal.onResourceManagerReload(mc.getResourceManager());
+            mc.renderGlobal.loadRenderers();
+        }
+    }
+
+    private void rescaleScreen() {
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc.currentScreen != null) {
+            ScaledResolution resolution = new ScaledResolution(mc);
+            mc.currentScreen.setWorldAndResolution(mc, resolution.getScaledWidth(), resolution.getScaledHeight());
+        }
+    }
+
+    private void capture(GameSettings settings) {
+        known = true;
+        renderDistance = settings.renderDistanceChunks;
+        particleSetting = settings.particleSetting;
+        mipmapLevels = settings.mipmapLevels;
+        ambientOcclusion = settings.ambientOcclusion;
+        clouds = settings.clouds;
+        guiScale = settings.guiScale;
+        limitFramerate = settings.limitFramerate;
+        fancyGraphics = settings.fancyGraphics;
+        useVbo = settings.useVbo;
+        fboEnable = settings.fboEnable;
+        enableVsync = settings.enableVsync;
+        gammaSetting = settings.gammaSetting;
+    }
+}
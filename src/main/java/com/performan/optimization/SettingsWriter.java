@@ -0,0 +1,277 @@
+package com.performan.optimization;
+
+import net.minecraft.client.settings.GameSettings;
+import net.minecraftforge.fml.client.FMLClientHandler;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes options.txt on a background thread. {@link #save} copies the settings on the
+ * calling thread and returns; the writer thread formats the copy with the vanilla
+ * saveOptions into a temporary file and renames it over options.txt. Saves arriving
+ * while one is written are coalesced into the newest copy, and whatever is still
+ * pending is written when the game exits.
+ */
+public class SettingsWriter {
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long LOADING_RETRY_DELAY = 500; // ms
+    private static final long FLUSH_TIMEOUT = 5000; // ms
+
+    private static final SettingsWriter INSTANCE = new SettingsWriter();
+
+    private final Object lock = new Object();
+    // Held while writing, so a flush never races a rename
+    private final Object writeLock = new Object();
+    private final Field[] fields;
+    private Field optionsFileField;
+    private Object unsafe;
+    private Method allocateInstance;
+
+    // Newest copy not yet written, guarded by lock
+    private Snapshot pending;
+    private long sequence = 0;
+    private Thread thread;
+    // Guarded by writeLock
+    private long writtenSequence = 0;
+
+    // Statistics
+    private volatile int requested = 0;
+    private volatile int written = 0;
+
+    private SettingsWriter() {
+        List<Field> copied = new ArrayList<>();
+        for (Field field : GameSettings.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) continue;
+            try {
+                field.setAccessible(true);
+            } catch (Exception e) {
+                System.err.println("Cannot copy setting " + field.getName() + ": " + e.getMessage());
+                continue;
+            }
+            copied.add(field);
+            // Looked up by type, the name differs between dev and obfuscated builds
+            if (field.getType() == File.class) {
+                optionsFileField = field;
+            }
+        }
+        fields = copied.toArray(new Field[0]);
+
+        // The GameSettings constructors register new key bindings that would take
+        // over the game's, so copies are allocated without running one
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+        } catch (Exception e) {
+            System.err.println("Background settings writes unavailable: " + e.getMessage());
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "Performan settings flush"));
+    }
+
+    public static SettingsWriter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Replaces GameSettings.saveOptions: sends the client settings to the server now
+     * and queues the file write. Must be called on the client thread.
+     */
+    public void save(GameSettings settings) {
+        settings.sendSettingsToServer();
+
+        Snapshot snapshot = null;
+        try {
+            if (allocateInstance != null && optionsFileField != null) {
+                snapshot = copy(settings);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to copy settings: " + e.getMessage());
+        }
+        if (snapshot == null) {
+            // Saving on this thread is better than not saving
+            saveDirectly(settings);
+            return;
+        }
+
+        synchronized (lock) {
+            snapshot.sequence = ++sequence;
+            pending = snapshot;
+            requested++;
+            if (thread == null || !thread.isAlive()) {
+                thread = new Thread(this::run, "Performan settings writer");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.start();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Writes the pending copy, if any, on the calling thread, and waits for a copy the
+     * writer thread already took, so every save so far is on disk when this returns.
+     */
+    public void flush() {
+        Snapshot snapshot;
+        long newest;
+        synchronized (lock) {
+            snapshot = pending;
+            pending = null;
+            newest = sequence;
+        }
+        if (snapshot != null) {
+            write(snapshot);
+        }
+
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT;
+        synchronized (writeLock) {
+            try {
+                while (writtenSequence < newest) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        System.err.println("Timed out waiting for the settings write");
+                        return;
+                    }
+                    writeLock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean hasPendingWrite() {
+        synchronized (lock) {
+            return pending != null;
+        }
+    }
+
+    public int getRequestedCount() {
+        return requested;
+    }
+
+    public int getWrittenCount() {
+        return written;
+    }
+
+    private void run() {
+        while (true) {
+            Snapshot snapshot;
+            synchronized (lock) {
+                try {
+                    while (pending == null) {
+                        lock.wait();
+                    }
+                    // saveOptions does nothing while FML is loading, keep the copy until it is done
+                    if (FMLClientHandler.instance().isLoading()) {
+                        lock.wait(LOADING_RETRY_DELAY);
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                snapshot = pending;
+                pending = null;
+            }
+            // Outside the lock, so save() never waits for the disk
+            write(snapshot);
+        }
+    }
+
+    private void write(Snapshot snapshot) {
+        synchronized (writeLock) {
+            // A flush may have written a newer copy in the meantime
+            if (snapshot.sequence <= writtenSequence) return;
+            writeFile(snapshot);
+            writtenSequence = snapshot.sequence;
+            writeLock.notifyAll();
+        }
+    }
+
+    private void writeFile(Snapshot snapshot) {
+        try {
+            File target = (File) optionsFileField.get(snapshot);
+            File temp = new File(target.getPath() + TEMP_SUFFIX);
+            Files.deleteIfExists(temp.toPath());
+            optionsFileField.set(snapshot, temp);
+            snapshot.saveOptions();
+
+            if (!temp.isFile()) {
+                System.err.println("Settings were not written, FML is still loading");
+                return;
+            }
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            written++;
+        } catch (Exception e) {
+            System.err.println("Failed to write settings: " + e.getMessage());
+        }
+    }
+
+    // Saves with the baseline in place of the degraded values, then puts them back
+    private void saveDirectly(GameSettings settings) {
+        int renderDistance = settings.renderDistanceChunks;
+        int particleSetting = settings.particleSetting;
+        boolean fancyGraphics = settings.fancyGraphics;
+        int mipmapLevels = settings.mipmapLevels;
+        QualityGovernor.getInstance().writeBaseline(settings, settings);
+        try {
+            // Also keeps it from racing a rename by the writer thread
+            synchronized (writeLock) {
+                settings.saveOptions();
+                written++;
+            }
+        } finally {
+            settings.renderDistanceChunks = renderDistance;
+            settings.particleSetting = particleSetting;
+            settings.fancyGraphics = fancyGraphics;
+            settings.mipmapLevels = mipmapLevels;
+        }
+    }
+
+    private Snapshot copy(GameSettings settings) throws Exception {
+        Snapshot snapshot = (Snapshot) allocateInstance.invoke(unsafe, Snapshot.class);
+        for (Field field : fields) {
+            Object value = field.get(settings);
+            // Collections the game may change while the copy is written
+            if (value instanceof Map) {
+                value = new HashMap<>((Map<?, ?>) value);
+            } else if (value instanceof List) {
+                value = new ArrayList<>((List<?>) value);
+            } else if (value instanceof Set) {
+                value = new HashSet<>((Set<?>) value);
+            }
+            field.set(snapshot, value);
+        }
+        // Saved values become the next launch's baseline, never the degraded ones
+        QualityGovernor.getInstance().writeBaseline(settings, snapshot);
+        return snapshot;
+    }
+
+    // A detached copy, the client thread already told the server
+    private static class Snapshot extends GameSettings {
+        long sequence;
+
+        @Override
+        public void sendSettingsToServer() {
+        }
+    }
+}
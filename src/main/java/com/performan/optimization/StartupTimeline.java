@@ -0,0 +1,91 @@
+package com.performan.optimization;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Times the launch from JVM start to the main menu. Each {@link #mark} ends a phase;
+ * {@link #finish} prints the phases and appends them to startup.csv, one row per
+ * phase, so launches can be compared across versions and settings.
+ */
+public class StartupTimeline {
+    private static final String CSV_FILE = "startup.csv";
+    private static final String CSV_HEADER = "launch,tier,phase,end_ms,duration_ms";
+
+    private static final StartupTimeline INSTANCE = new StartupTimeline();
+
+    // nanoTime of the JVM start, or of class loading where it is unknown
+    private final long origin;
+    private final List<String> phases = new ArrayList<>();
+    private final List<Long> ends = new ArrayList<>();
+    private boolean finished = false;
+
+    private StartupTimeline() {
+        long uptime = 0;
+        try {
+            uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        } catch (Throwable t) {
+            // No management beans on this VM
+        }
+        origin = System.nanoTime() - uptime * 1000000L;
+    }
+
+    public static StartupTimeline getInstance() {
+        return INSTANCE;
+    }
+
+    /** Ends the running phase under the given name. Ignored once finished. */
+    public synchronized void mark(String phase) {
+        if (finished) return;
+        phases.add(phase);
+        ends.add(System.nanoTime() - origin);
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    public synchronized long getTotalMillis() {
+        return ends.isEmpty() ? 0 : ends.get(ends.size() - 1) / 1000000L;
+    }
+
+    /** Ends the timeline, prints it and appends it to startup.csv in the given directory. */
+    public synchronized void finish(File directory, String tier) {
+        if (finished) return;
+        finished = true;
+
+        StringBuilder summary = new StringBuilder("Performan startup: ").append(getTotalMillis()).append(" ms");
+        long previous = 0;
+        for (int i = 0; i < phases.size(); i++) {
+            summary.append(", ").append(phases.get(i)).append(' ')
+                .append((ends.get(i) - previous) / 1000000L).append(" ms");
+            previous = ends.get(i);
+        }
+        System.out.println(summary);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("Cannot create " + directory);
+            return;
+        }
+        File file = new File(directory, CSV_FILE);
+        boolean header = !file.isFile();
+        String launch = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+            if (header) out.println(CSV_HEADER);
+            previous = 0;
+            for (int i = 0; i < phases.size(); i++) {
+                out.println(launch + "," + tier + "," + phases.get(i) + "," + ends.get(i) / 1000000L + ","
+                    + (ends.get(i) - previous) / 1000000L);
+                previous = ends.get(i);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to write startup timeline: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.performan.optimization;
+
+import com.performan.render.CachedSignRenderer;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.tileentity.TileEntityRendererDispatcher;
+import net.minecraft.client.renderer.tileentity.TileEntitySpecialRenderer;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.tileentity.TileEntityBanner;
+import net.minecraft.tileentity.TileEntityChest;
+import net.minecraft.tileentity.TileEntityEnderChest;
+import net.minecraft.tileentity.TileEntitySign;
+import net.minecraft.tileentity.TileEntitySkull;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import java.util.Map;
+
+/**
+ * Wraps every tile entity special renderer. Beyond a distance set by the device tier,
+ * or -Dperforman.tesrDistance, nothing is drawn; once a frame has drawn its budget of
+ * special renderers, static ones such as signs, skulls, banners and closed chests are
+ * only drawn close to the camera. Tile entities are drawn nearest chunks first, so the
+ * ones left out are the far ones and stay the same from frame to frame.
+ */
+public class TileEntityThrottle {
+    // Indexed by PlatformProfile.Tier
+    private static final double[] TIER_DISTANCE = {24.0, 32.0, 48.0};
+    private static final int[] TIER_BUDGET = {64, 128, 256};
+
+    // Indexed by QualityGovernor level
+    private static final double[] DISTANCE_SCALE = {1.0, 0.9, 0.75, 0.6, 0.5};
+    private static final double[] BUDGET_SCALE = {1.0, 0.75, 0.5, 0.35, 0.25};
+
+    // Always drawn this close
+    private static final double NEAR_DISTANCE_SQ = 8.0 * 8.0;
+    private static final int CLEANUP_INTERVAL = 200; // frames
+
+    private static final int PROFILE_RENDER_TICK = HotPathProfiler.getInstance().handler("TileEntityThrottle.onRenderTick");
+
+    private static final TileEntityThrottle INSTANCE = new TileEntityThrottle();
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final QualityGovernor governor = QualityGovernor.getInstance();
+    private final PlatformProfile platform = PlatformProfile.getInstance();
+    private final CachedSignRenderer signRenderer = new CachedSignRenderer();
+    private final double configuredDistance = readConfiguredDistance();
+    private boolean installed = false;
+
+    // Limits of the current frame
+    private double cullDistanceSq = Double.MAX_VALUE;
+    private int budget = Integer.MAX_VALUE;
+    private int frameRendered = 0;
+    private int frameCounter = 0;
+
+    // Statistics
+    private int lastFrameRendered = 0;
+    private long culled = 0;
+    private long throttled = 0;
+
+    public static TileEntityThrottle getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Replaces the sign renderer and wraps all registered renderers. Call once mods
+     * have registered theirs.
+     */
+    @SuppressWarnings("unchecked")
+    public void install() {
+        if (installed) return;
+        installed = true;
+
+        TileEntityRendererDispatcher dispatcher = TileEntityRendererDispatcher.instance;
+        Map<Class<? extends TileEntity>, TileEntitySpecialRenderer<? extends TileEntity>> renderers = dispatcher.mapSpecialRenderers;
+        try {
+            signRenderer.setRendererDispatcher(dispatcher);
+            renderers.put(TileEntitySign.class, signRenderer);
+            for (Map.Entry<Class<? extends TileEntity>, TileEntitySpecialRenderer<? extends TileEntity>> entry : renderers.entrySet()) {
+                if (entry.getValue() instanceof ThrottledRenderer) continue;
+
+                ThrottledRenderer wrapper = new ThrottledRenderer((TileEntitySpecialRenderer<TileEntity>) entry.getValue(), this);
+                wrapper.setRendererDispatcher(dispatcher);
+                entry.setValue(wrapper);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to wrap tile entity renderers: " + e.getMessage());
+        }
+    }
+
+    @SubscribeEvent
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_RENDER_TICK);
+        try {
+            handleRenderTick(event);
+        } finally {
+            profiler.end(PROFILE_RENDER_TICK, profileStart);
+        }
+    }
+
+    private void handleRenderTick(TickEvent.RenderTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) return;
+
+        lastFrameRendered = frameRendered;
+        frameRendered = 0;
+
+        int tier = platform.getTier().ordinal();
+        int level = governor.getEffectiveLevel();
+        double distance = (configuredDistance > 0 ? configuredDistance : TIER_DISTANCE[tier]) * DISTANCE_SCALE[level];
+        cullDistanceSq = distance * distance;
+        budget = Math.max(1, (int) (TIER_BUDGET[tier] * BUDGET_SCALE[level]));
+
+        if (++frameCounter % CLEANUP_INTERVAL == 0 && Minecraft.getMinecraft().theWorld != null) {
+            signRenderer.cleanup();
+        }
+    }
+
+    public int getLastFrameRendered() {
+        return lastFrameRendered;
+    }
+
+    public long getCulledCount() {
+        return culled;
+    }
+
+    public long getThrottledCount() {
+        return throttled;
+    }
+
+    public CachedSignRenderer getSignRenderer() {
+        return signRenderer;
+    }
+
+    // Called from the wrappers, coordinates are relative to the camera
+    boolean shouldRender(TileEntity te, double x, double y, double z) {
+        double dx = x + 0.5;
+        double dy = y + 0.5;
+        double dz = z + 0.5;
+        double distanceSq = dx * dx + dy * dy + dz * dz;
+        if (distanceSq > cullDistanceSq) {
+            culled++;
+            return false;
+        }
+        if (frameRendered >= budget && distanceSq > NEAR_DISTANCE_SQ && isStatic(te)) {
+            throttled++;
+            return false;
+        }
+        frameRendered++;
+        return true;
+    }
+
+    private static double readConfiguredDistance() {
+        String value = System.getProperty("performan.tesrDistance");
+        if (value == null) return 0;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid performan.tesrDistance " + value);
+            return 0;
+        }
+    }
+
+    // Looks the same every frame unless its contents change
+    private static boolean isStatic(TileEntity te) {
+        if (te instanceof TileEntitySign || te instanceof TileEntitySkull || te instanceof TileEntityBanner) {
+            return true;
+        }
+        if (te instanceof TileEntityChest) {
+            TileEntityChest chest = (TileEntityChest) te;
+            return chest.lidAngle == 0.0F && chest.prevLidAngle == 0.0F;
+        }
+        if (te instanceof TileEntityEnderChest) {
+            TileEntityEnderChest chest = (TileEntityEnderChest) te;
+            return chest.lidAngle == 0.0F && chest.prevLidAngle == 0.0F;
+        }
+        return false;
+    }
+
+    private static class ThrottledRenderer extends TileEntitySpecialRenderer<TileEntity> {
+        private final TileEntitySpecialRenderer<TileEntity> renderer;
+        private final TileEntityThrottle throttle;
+
+        ThrottledRenderer(TileEntitySpecialRenderer<TileEntity> renderer, TileEntityThrottle throttle) {
+            this.renderer = renderer;
+            this.throttle = throttle;
+        }
+
+        @Override
+        public void renderTileEntityAt(TileEntity te, double x, double y, double z, float partialTicks, int destroyStage) {
+            // Block breaking overlays and always rendered ones such as beacon beams are left alone
+            if (destroyStage >= 0 || renderer.forceTileEntityRender() || throttle.shouldRender(te, x, y, z)) {
+                renderer.renderTileEntityAt(te, x, y, z, partialTicks, destroyStage);
+            }
+        }
+
+        @Override
+        public void setRendererDispatcher(TileEntityRendererDispatcher dispatcher) {
+            super.setRendererDispatcher(dispatcher);
+            renderer.setRendererDispatcher(dispatcher);
+        }
+
+        @Override
+        public boolean forceTileEntityRender() {
+            return renderer.forceTileEntityRender();
+        }
+    }
+}
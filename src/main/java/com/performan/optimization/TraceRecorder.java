@@ -0,0 +1,203 @@
+package com.performan.optimization;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a compact trace of a play session for TraceReplayer: frame times with the
+ * camera rotation, player positions per client tick, and the governor's baseline
+ * whenever it changes. One file per world visit, started with -Dperforman.trace=true.
+ *
+ * Format, gzip compressed: int MAGIC, short VERSION, then records starting with a tag byte
+ * <pre>
+ * FRAME    int frameNanos, float yaw, float pitch
+ * TICK     double x, double z
+ * SETTINGS byte renderDistance, byte particleSetting, boolean fancyGraphics,
+ *          byte mipmapLevels, boolean adaptive, long targetFrameNanos
+ * </pre>
+ */
+public class TraceRecorder {
+    public static final int MAGIC = 0x50465452; // "PFTR"
+    public static final short VERSION = 1;
+    public static final byte FRAME = 1;
+    public static final byte TICK = 2;
+    public static final byte SETTINGS = 3;
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private static final int PROFILE_RENDER_TICK = HotPathProfiler.getInstance().handler("TraceRecorder.onRenderTick");
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("TraceRecorder.onClientTick");
+
+    private static final TraceRecorder INSTANCE = new TraceRecorder();
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final QualityGovernor governor = QualityGovernor.getInstance();
+    private final boolean enabled = Boolean.getBoolean("performan.trace");
+
+    private DataOutputStream out;
+    private File file;
+    private long lastFrameStart = 0;
+    private long recordedFrames = 0;
+
+    // Last written baseline, the first frame always writes one
+    private int renderDistance = -1;
+    private int particleSetting;
+    private boolean fancyGraphics;
+    private int mipmapLevels;
+    private boolean adaptive;
+    private long targetFrameNanos;
+
+    private TraceRecorder() {
+        if (enabled) {
+            // Flush what was recorded when the game exits mid-session
+            Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "Performan trace flush"));
+        }
+    }
+
+    public static TraceRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    @SubscribeEvent
+    public void onRenderTick(TickEvent.RenderTickEvent event) {
+        if (!enabled) return;
+
+        long profileStart = profiler.begin(PROFILE_RENDER_TICK);
+        try {
+            handleRenderTick(event);
+        } finally {
+            profiler.end(PROFILE_RENDER_TICK, profileStart);
+        }
+    }
+
+    private synchronized void handleRenderTick(TickEvent.RenderTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) return;
+
+        Minecraft mc = Minecraft.getMinecraft();
+        Entity camera = mc.getRenderViewEntity();
+        if (mc.theWorld == null || camera == null) {
+            stop();
+            return;
+        }
+
+        long now = System.nanoTime();
+        long frameNanos = lastFrameStart != 0 ? now - lastFrameStart : 0;
+        lastFrameStart = now;
+        // Same filter as FrameTimeTracker, pauses are not frames
+        if (frameNanos <= 0 || frameNanos >= FrameTimeTracker.MAX_FRAME_NANOS) return;
+
+        try {
+            if (out == null) start(mc);
+            writeSettingsIfChanged();
+            out.writeByte(FRAME);
+            out.writeInt((int) frameNanos);
+            out.writeFloat(camera.rotationYaw);
+            out.writeFloat(camera.rotationPitch);
+            recordedFrames++;
+        } catch (IOException e) {
+            System.err.println("Failed to write trace, recording stopped: " + e.getMessage());
+            stop();
+        }
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (!enabled) return;
+
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    private synchronized void handleClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || out == null) return;
+
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc.thePlayer == null) return;
+
+        try {
+            out.writeByte(TICK);
+            out.writeDouble(mc.thePlayer.posX);
+            out.writeDouble(mc.thePlayer.posZ);
+        } catch (IOException e) {
+            System.err.println("Failed to write trace, recording stopped: " + e.getMessage());
+            stop();
+        }
+    }
+
+    public boolean isRecording() {
+        return out != null;
+    }
+
+    public long getRecordedFrames() {
+        return recordedFrames;
+    }
+
+    /** Closes the current trace, the next world visit starts a new one. */
+    public synchronized void stop() {
+        if (out == null) return;
+
+        try {
+            out.close();
+            System.out.println("Trace with " + recordedFrames + " frames written to " + file);
+        } catch (IOException e) {
+            System.err.println("Failed to close trace: " + e.getMessage());
+        }
+        out = null;
+        file = null;
+        lastFrameStart = 0;
+    }
+
+    private void start(Minecraft mc) throws IOException {
+        File directory = new File(mc.mcDataDir, "performan");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        file = new File(directory, "trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".bin");
+        out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        recordedFrames = 0;
+        renderDistance = -1;
+    }
+
+    private void writeSettingsIfChanged() throws IOException {
+        if (governor.getBaseRenderDistance() == renderDistance
+                && governor.getBaseParticleSetting() == particleSetting
+                && governor.isBaseFancyGraphics() == fancyGraphics
+                && governor.getBaseMipmapLevels() == mipmapLevels
+                && governor.isAdaptive() == adaptive
+                && governor.getTargetFrameNanos() == targetFrameNanos) {
+            return;
+        }
+
+        renderDistance = governor.getBaseRenderDistance();
+        particleSetting = governor.getBaseParticleSetting();
+        fancyGraphics = governor.isBaseFancyGraphics();
+        mipmapLevels = governor.getBaseMipmapLevels();
+        adaptive = governor.isAdaptive();
+        targetFrameNanos = governor.getTargetFrameNanos();
+
+        out.writeByte(SETTINGS);
+        out.writeByte(renderDistance);
+        out.writeByte(particleSetting);
+        out.writeBoolean(fancyGraphics);
+        out.writeByte(mipmapLevels);
+        out.writeBoolean(adaptive);
+        out.writeLong(targetFrameNanos);
+    }
+}
@@ -0,0 +1,261 @@
+package com.performan.optimization;
+
+import net.minecraft.client.settings.GameSettings;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Feeds a TraceRecorder trace through the adaptive policies without a game: the
+ * QualityGovernor, the rapid look detection of FPSDrop and the fast movement and
+ * chunk process limit of CPUReduce. The latter two run as on a constrained device,
+ * where they are active, and every CPUReduce.TICK_INTERVAL ticks as in game. The replay
+ * assumes singleplayer, where a predictable path is prefetched instead of capping the
+ * render distance.
+ *
+ * Usage: java -cp &lt;mod and Minecraft classpath&gt; com.performan.optimization.TraceReplayer trace.bin
+ */
+public class TraceReplayer {
+    /** Policy outputs from a point in the trace on. */
+    public static class Change {
+        public final long timeNanos;
+        public final int level;
+        public final int renderDistance;
+        public final int particleSetting;
+        public final boolean fancyGraphics;
+        public final int mipmapLevels;
+        public final int processLimit;
+
+        Change(long timeNanos, int level, GameSettings settings, int processLimit) {
+            this.timeNanos = timeNanos;
+            this.level = level;
+            this.renderDistance = settings.renderDistanceChunks;
+            this.particleSetting = settings.particleSetting;
+            this.fancyGraphics = settings.fancyGraphics;
+            this.mipmapLevels = settings.mipmapLevels;
+            this.processLimit = processLimit;
+        }
+
+        boolean sameOutputs(Change other) {
+            return level == other.level && renderDistance == other.renderDistance
+                && particleSetting == other.particleSetting && fancyGraphics == other.fancyGraphics
+                && mipmapLevels == other.mipmapLevels && processLimit == other.processLimit;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%9.2fs level=%d renderDistance=%d particles=%d fancy=%b mipmaps=%d processLimit=%d",
+                timeNanos / 1.0e9, level, renderDistance, particleSetting, fancyGraphics, mipmapLevels, processLimit);
+        }
+    }
+
+    public static class Result {
+        public final long frames;
+        public final long durationNanos;
+        // Time spent in frames slower than the target
+        public final long nanosBelowTarget;
+        public final int rendererReloads;
+        public final int levelChanges;
+        public final List<Change> timeline;
+
+        Result(long frames, long durationNanos, long nanosBelowTarget, int rendererReloads,
+               int levelChanges, List<Change> timeline) {
+            this.frames = frames;
+            this.durationNanos = durationNanos;
+            this.nanosBelowTarget = nanosBelowTarget;
+            this.rendererReloads = rendererReloads;
+            this.levelChanges = levelChanges;
+            this.timeline = Collections.unmodifiableList(timeline);
+        }
+    }
+
+    private final QualityGovernor governor = new QualityGovernor();
+    private final FrameTimeTracker frameTimes = new FrameTimeTracker(FrameTimeTracker.WINDOW_SIZE);
+    private final GameSettings settings = new GameSettings();
+    private final List<Change> timeline = new ArrayList<>();
+
+    private long now = 0;
+    private long frames = 0;
+    private long nanosBelowTarget = 0;
+
+    // FPSDrop state
+    private boolean hasRotation = false;
+    private float lastYaw;
+    private float lastPitch;
+    private boolean rapidLook = false;
+    private int stabilizationFrames = 0;
+
+    // CPUReduce state
+    private int tickCounter = 0;
+    private boolean hasPosition = false;
+    private double lastX;
+    private double lastZ;
+    private boolean movingFast = false;
+    private int movementCooldown = 0;
+    private final MovementPredictor predictor = new MovementPredictor();
+    private int processLimit = CPUReduce.computeProcessLimit(60.0, false);
+    private long lastPerformanceCheck = 0;
+
+    private TraceReplayer() {
+    }
+
+    /** Replays a trace as written by TraceRecorder, the stream is not closed. */
+    public static Result replay(InputStream in) throws IOException {
+        return new TraceReplayer().run(new DataInputStream(new BufferedInputStream(new GZIPInputStream(in))));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: TraceReplayer <trace.bin>...");
+            System.exit(1);
+        }
+
+        for (String path : args) {
+            Result result;
+            try (InputStream in = new FileInputStream(path)) {
+                result = replay(in);
+            }
+
+            System.out.println(path);
+            System.out.printf("  %d frames over %.1fs, %.1fs below target FPS (%.1f%%)%n",
+                result.frames, result.durationNanos / 1.0e9, result.nanosBelowTarget / 1.0e9,
+                result.durationNanos > 0 ? 100.0 * result.nanosBelowTarget / result.durationNanos : 0.0);
+            System.out.printf("  %d level changes, %d renderer reloads%n", result.levelChanges, result.rendererReloads);
+            for (Change change : result.timeline) {
+                System.out.println("  " + change);
+            }
+        }
+    }
+
+    private Result run(DataInputStream in) throws IOException {
+        if (in.readInt() != TraceRecorder.MAGIC) {
+            throw new IOException("Not a Performan trace");
+        }
+        short version = in.readShort();
+        if (version != TraceRecorder.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+
+        while (true) {
+            int tag;
+            try {
+                tag = in.readByte();
+            } catch (EOFException e) {
+                break; // A trace cut off by a crash ends at the last full record
+            }
+
+            try {
+                switch (tag) {
+                    case TraceRecorder.FRAME:
+                        frame(in.readInt(), in.readFloat(), in.readFloat());
+                        break;
+                    case TraceRecorder.TICK:
+                        tick(in.readDouble(), in.readDouble());
+                        break;
+                    case TraceRecorder.SETTINGS:
+                        settings(in.readByte(), in.readByte(), in.readBoolean(), in.readByte(),
+                            in.readBoolean(), in.readLong());
+                        break;
+                    default:
+                        throw new IOException("Unknown trace record " + tag);
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            recordChange();
+        }
+
+        return new Result(frames, now, nanosBelowTarget, governor.getRendererReloads(),
+            governor.getLevelChanges(), timeline);
+    }
+
+    // QualityGovernor.onRenderTick and FPSDrop.detectRapidMovement
+    private void frame(int frameNanos, float yaw, float pitch) {
+        now += frameNanos;
+        frames++;
+        frameTimes.recordFrame(frameNanos);
+        if (frameNanos > governor.getTargetFrameNanos()) {
+            nanosBelowTarget += frameNanos;
+        }
+
+        if (hasRotation) {
+            if (FPSDrop.isRapidLook(Math.abs(yaw - lastYaw), Math.abs(pitch - lastPitch))) {
+                if (!rapidLook) {
+                    rapidLook = true;
+                    governor.setRapidMovement(true);
+                    stabilizationFrames = FPSDrop.STABILIZATION_DELAY;
+                }
+            } else if (stabilizationFrames > 0) {
+                stabilizationFrames--;
+                if (stabilizationFrames == 0) {
+                    rapidLook = false;
+                    governor.setRapidMovement(false);
+                }
+            }
+        }
+        hasRotation = true;
+        lastYaw = yaw;
+        lastPitch = pitch;
+
+        governor.update(frameTimes.getP95FrameNanos(), now);
+        governor.applyTo(settings);
+    }
+
+    // CPUReduce.onClientTick, TICK records are one client tick apart
+    private void tick(double x, double z) {
+        tickCounter++;
+        if (tickCounter % CPUReduce.TICK_INTERVAL != 0) return;
+        tickCounter = 0;
+
+        if (now - lastPerformanceCheck >= CPUReduce.PERFORMANCE_CHECK_INTERVAL * 1000000L) {
+            if (frameTimes.getSampleCount() > 0) {
+                processLimit = CPUReduce.computeProcessLimit(frameTimes.getP95FPS(), movingFast);
+            }
+            lastPerformanceCheck = now;
+        }
+
+        predictor.update(x, z, CPUReduce.TICK_SECONDS);
+        if (hasPosition) {
+            if (CPUReduce.isFastMovement(Math.abs(x - lastX), Math.abs(z - lastZ))) {
+                movingFast = true;
+                movementCooldown = CPUReduce.FAST_MOVEMENT_COOLDOWN;
+                if (CPUReduce.capsRenderDistance(predictor.isPredictable(), true)) {
+                    governor.setRenderDistanceCap(CPUReduce.FAST_MOVEMENT_RENDER_DISTANCE);
+                } else {
+                    governor.clearRenderDistanceCap();
+                }
+            } else if (movementCooldown > 0) {
+                movementCooldown--;
+                if (movementCooldown == 0) {
+                    movingFast = false;
+                    governor.clearRenderDistanceCap();
+                }
+            }
+        }
+        hasPosition = true;
+        lastX = x;
+        lastZ = z;
+    }
+
+    private void settings(int renderDistance, int particleSetting, boolean fancyGraphics, int mipmapLevels,
+                          boolean adaptive, long targetFrameNanos) {
+        governor.setBaseline(renderDistance, particleSetting, fancyGraphics, mipmapLevels);
+        governor.setAdaptive(adaptive);
+        governor.setTargetFPS(1.0e9 / targetFrameNanos);
+        governor.applyTo(settings);
+    }
+
+    private void recordChange() {
+        Change change = new Change(now, governor.getEffectiveLevel(), settings, processLimit);
+        if (timeline.isEmpty() || !timeline.get(timeline.size() - 1).sameOutputs(change)) {
+            timeline.add(change);
+        }
+    }
+}
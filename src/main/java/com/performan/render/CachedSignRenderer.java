@@ -0,0 +1,226 @@
+package com.performan.render;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.FontRenderer;
+import net.minecraft.client.gui.GuiUtilRenderComponents;
+import net.minecraft.client.model.ModelSign;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.tileentity.TileEntitySpecialRenderer;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntitySign;
+import net.minecraft.util.IChatComponent;
+import net.minecraft.util.ResourceLocation;
+import org.lwjgl.opengl.GL11;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The vanilla sign renderer, except that the text of each sign is compiled into a
+ * display list once and replayed until a line or the edited line changes. Splitting,
+ * formatting and drawing the text through the FontRenderer is most of a sign's cost.
+ */
+public class CachedSignRenderer extends TileEntitySpecialRenderer<TileEntitySign> {
+    private static final ResourceLocation SIGN_TEXTURE = new ResourceLocation("textures/entity/sign.png");
+    private static final int MAX_CACHED = 1024;
+    private static final int IDLE_CLEANUPS = 3; // cleanups a sign may go undrawn before its list is freed
+    private static final String OBFUSCATED = "\u00a7k"; // FontRenderer picks new glyphs on every draw
+
+    private final ModelSign model = new ModelSign();
+    private final Map<TileEntitySign, SignText> cache = new HashMap<>();
+    private int generation = 0;
+
+    // Statistics
+    private long compiled = 0;
+    private long replayed = 0;
+
+    @Override
+    public void renderTileEntityAt(TileEntitySign te, double x, double y, double z, float partialTicks, int destroyStage) {
+        GlStateManager.pushMatrix();
+        float scale = 0.6666667F;
+        if (te.getBlockType() == Blocks.standing_sign) {
+            GlStateManager.translate((float) x + 0.5F, (float) y + 0.75F * scale, (float) z + 0.5F);
+            GlStateManager.rotate(-(te.getBlockMetadata() * 360) / 16.0F, 0.0F, 1.0F, 0.0F);
+            model.signStick.showModel = true;
+        } else {
+            int meta = te.getBlockMetadata();
+            float angle = meta == 2 ? 180.0F : meta == 4 ? 90.0F : meta == 5 ? -90.0F : 0.0F;
+            GlStateManager.translate((float) x + 0.5F, (float) y + 0.75F * scale, (float) z + 0.5F);
+            GlStateManager.rotate(-angle, 0.0F, 1.0F, 0.0F);
+            GlStateManager.translate(0.0F, -0.3125F, -0.4375F);
+            model.signStick.showModel = false;
+        }
+
+        if (destroyStage >= 0) {
+            bindTexture(DESTROY_STAGES[destroyStage]);
+            GlStateManager.matrixMode(GL11.GL_TEXTURE);
+            GlStateManager.pushMatrix();
+            GlStateManager.scale(4.0F, 2.0F, 1.0F);
+            GlStateManager.translate(0.0625F, 0.0625F, 0.0625F);
+            GlStateManager.matrixMode(GL11.GL_MODELVIEW);
+        } else {
+            bindTexture(SIGN_TEXTURE);
+        }
+
+        GlStateManager.enableRescaleNormal();
+        GlStateManager.pushMatrix();
+        GlStateManager.scale(scale, -scale, -scale);
+        model.renderSign();
+        GlStateManager.popMatrix();
+
+        float textScale = 0.015625F * scale;
+        GlStateManager.translate(0.0F, 0.5F * scale, 0.07F * scale);
+        GlStateManager.scale(textScale, -textScale, textScale);
+        GL11.glNormal3f(0.0F, 0.0F, -1.0F * textScale);
+        GlStateManager.depthMask(false);
+        if (destroyStage < 0) {
+            renderText(te);
+        }
+        GlStateManager.depthMask(true);
+        GlStateManager.color(1.0F, 1.0F, 1.0F, 1.0F);
+        GlStateManager.popMatrix();
+
+        if (destroyStage >= 0) {
+            GlStateManager.matrixMode(GL11.GL_TEXTURE);
+            GlStateManager.popMatrix();
+            GlStateManager.matrixMode(GL11.GL_MODELVIEW);
+        }
+    }
+
+    /**
+     * Frees the lists of signs that were removed, unloaded or not drawn since the last
+     * few calls. Unloading a chunk does not invalidate its signs on the client, but
+     * the world no longer returns them. Call on the client thread.
+     */
+    public void cleanup() {
+        Minecraft mc = Minecraft.getMinecraft();
+        generation++;
+        Iterator<Map.Entry<TileEntitySign, SignText>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TileEntitySign, SignText> entry = iterator.next();
+            TileEntitySign te = entry.getKey();
+            if (te.isInvalid() || te.getWorld() != mc.theWorld
+                    || generation - entry.getValue().lastDrawn > IDLE_CLEANUPS
+                    || mc.theWorld.getTileEntity(te.getPos()) != te) {
+                GL11.glDeleteLists(entry.getValue().list, 1);
+                iterator.remove();
+            }
+        }
+    }
+
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    public long getCompiledCount() {
+        return compiled;
+    }
+
+    public long getReplayedCount() {
+        return replayed;
+    }
+
+    private void renderText(TileEntitySign te) {
+        SignText text = cache.get(te);
+        if (text != null) {
+            text.lastDrawn = generation;
+        }
+        if (text != null && text.matches(te)) {
+            GL11.glCallList(text.list);
+            replayed++;
+            // The list changed texture and colour behind GlStateManager's back
+            forgetTextState();
+            return;
+        }
+
+        // A list would freeze the scrambled text
+        if (hasObfuscatedText(te)) {
+            if (text != null) {
+                GL11.glDeleteLists(text.list, 1);
+                cache.remove(te);
+            }
+            drawLines(te);
+            return;
+        }
+
+        if (text == null) {
+            if (cache.size() >= MAX_CACHED) {
+                drawLines(te);
+                return;
+            }
+            int list = GL11.glGenLists(1);
+            if (list == 0) {
+                drawLines(te);
+                return;
+            }
+            text = new SignText(list);
+            text.lastDrawn = generation;
+            cache.put(te, text);
+        }
+
+        // Drawn live first, so glyph pages the text needs are uploaded now and not into the list
+        drawLines(te);
+        text.capture(te);
+        // Otherwise binds and colours the cache thinks are current would not be recorded
+        forgetTextState();
+        GL11.glNewList(text.list, GL11.GL_COMPILE);
+        drawLines(te);
+        GL11.glEndList();
+        // Compiling only recorded what GlStateManager now thinks is current
+        forgetTextState();
+        compiled++;
+    }
+
+    private static boolean hasObfuscatedText(TileEntitySign te) {
+        for (IChatComponent line : te.signText) {
+            if (line != null && line.getFormattedText().contains(OBFUSCATED)) return true;
+        }
+        return false;
+    }
+
+    private void drawLines(TileEntitySign te) {
+        FontRenderer fontRenderer = getFontRenderer();
+        for (int line = 0; line < te.signText.length; line++) {
+            if (te.signText[line] == null) continue;
+
+            List<IChatComponent> parts = GuiUtilRenderComponents.splitText(te.signText[line], 90, fontRenderer, false, true);
+            String s = parts != null && parts.size() > 0 ? parts.get(0).getFormattedText() : "";
+            if (line == te.lineBeingEdited) {
+                s = "> " + s + " <";
+            }
+            fontRenderer.drawString(s, -fontRenderer.getStringWidth(s) / 2, line * 10 - te.signText.length * 5, 0);
+        }
+    }
+
+    private static void forgetTextState() {
+        GlStateManager.bindTexture(0);
+        GlStateManager.resetColor();
+    }
+
+    // Lines are replaced, never changed in place, so comparing references is enough
+    private static class SignText {
+        final int list;
+        IChatComponent[] lines = new IChatComponent[0];
+        int lineBeingEdited;
+        // The cleanup generation it was last drawn in
+        int lastDrawn;
+
+        SignText(int list) {
+            this.list = list;
+        }
+
+        boolean matches(TileEntitySign te) {
+            if (te.lineBeingEdited != lineBeingEdited || te.signText.length != lines.length) return false;
+            for (int i = 0; i < lines.length; i++) {
+                if (te.signText[i] != lines[i]) return false;
+            }
+            return true;
+        }
+
+        void capture(TileEntitySign te) {
+            lines = te.signText.clone();
+            lineBeingEdited = te.lineBeingEdited;
+        }
+    }
+}
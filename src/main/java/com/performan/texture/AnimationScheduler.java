@@ -0,0 +1,347 @@
+package com.performan.texture;
+
+import com.performan.optimization.FrameTimeTracker;
+import com.performan.optimization.HotPathProfiler;
+import com.performan.optimization.PlatformProfile;
+import com.performan.optimization.QualityGovernor;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.BlockModelShapes;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.texture.TextureMap;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.Vec3;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.client.event.TextureStitchEvent;
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Takes the animated sprites away from TextureMap.updateAnimations and updates them
+ * itself: sprites of blocks are only animated while such blocks were seen near the
+ * camera or in view within the last seconds, all others always. Updates stay within
+ * a per tick texel budget and are spread over more ticks while frames are slow.
+ *
+ * Chunk sections around the camera are swept a few per tick, comparing their block
+ * state ids against a table of states drawn with animated sprites.
+ */
+public class AnimationScheduler {
+    private static final int SCAN_RADIUS = 6; // chunks
+    private static final int SECTIONS_PER_TICK = 16;
+    private static final int VISIBLE_TICKS = 100;
+    private static final int ENTITY_CHECK_INTERVAL = 10; // ticks
+    private static final double NEAR_DISTANCE_SQ = 32.0 * 32.0;
+    private static final double VIEW_COS = 0.2; // about 78 degrees off the view direction
+    private static final int BUDGET_CONSTRAINED = 16384; // texels per tick
+    private static final int BUDGET_DEFAULT = 262144;
+    private static final String FIRE_SPRITE = "minecraft:blocks/fire_layer_0";
+    // Sprites drawn together, such as still and flowing water, share a group
+    private static final String[] COMPANION_SUFFIXES = {"_still", "_flow", "_layer_0", "_layer_1"};
+
+    private static final int PROFILE_CLIENT_TICK = HotPathProfiler.getInstance().handler("AnimationScheduler.onClientTick");
+
+    private static final AnimationScheduler INSTANCE = new AnimationScheduler();
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final FrameTimeTracker frameTimes = FrameTimeTracker.getInstance();
+    private final QualityGovernor governor = QualityGovernor.getInstance();
+    // TextureMap.listAnimatedSprites, resolved once
+    private MethodHandle animatedSpritesGetter;
+
+    private TextureMap map;
+    private TextureAtlasSprite[] sprites = new TextureAtlasSprite[0];
+    private int[] spriteGroup = new int[0];
+    private boolean[] groupMapped = new boolean[0];
+    private int[] groupLastSeen = new int[0];
+    // Group of each block state id, -1 for states without animation
+    private int[] stateGroup = new int[0];
+    private int fireGroup = -1;
+    private boolean mappingDirty = false;
+
+    private int tick = 0;
+    private int cursor = 0;
+    // Sections left in the current sweep, as chunk x, section y, chunk z
+    private int[] sweep = new int[0];
+    private int sweepLength = 0;
+    private int sweepIndex = 0;
+
+    // Statistics of the last update
+    private int lastActive = 0;
+    private int lastUpdated = 0;
+    private int updateInterval = 1;
+
+    private AnimationScheduler() {
+        try {
+            animatedSpritesGetter = MethodHandles.lookup().unreflectGetter(
+                ReflectionHelper.findField(TextureMap.class, "listAnimatedSprites", "field_94258_i"));
+        } catch (Exception e) {
+            System.err.println("Animation scheduling unavailable: " + e.getMessage());
+        }
+    }
+
+    public static AnimationScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onTextureStitchPost(TextureStitchEvent.Post event) {
+        if (animatedSpritesGetter == null || event.map != Minecraft.getMinecraft().getTextureMapBlocks()) return;
+
+        try {
+            @SuppressWarnings("unchecked")
+            List<TextureAtlasSprite> animated = (List<TextureAtlasSprite>) animatedSpritesGetter.invoke(event.map);
+            TextureAtlasSprite[] taken = animated.toArray(new TextureAtlasSprite[0]);
+            // From here on only this class updates them
+            animated.clear();
+            takeSprites(event.map, taken);
+        } catch (Throwable t) {
+            System.err.println("Failed to take animated sprites: " + t.getMessage());
+        }
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        long profileStart = profiler.begin(PROFILE_CLIENT_TICK);
+        try {
+            handleClientTick(event);
+        } finally {
+            profiler.end(PROFILE_CLIENT_TICK, profileStart);
+        }
+    }
+
+    private void handleClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || sprites.length == 0) return;
+
+        Minecraft mc = Minecraft.getMinecraft();
+        // Vanilla does not animate textures while paused either
+        if (mc.isGamePaused()) return;
+        tick++;
+
+        if (mappingDirty) {
+            buildStateTable(mc);
+        }
+        Entity camera = mc.getRenderViewEntity();
+        if (mc.theWorld != null && camera != null) {
+            scanSections(mc.theWorld, camera, Math.min(SCAN_RADIUS, mc.gameSettings.renderDistanceChunks));
+            if (tick % ENTITY_CHECK_INTERVAL == 0) {
+                checkBurningEntities(mc.theWorld, camera);
+            }
+        }
+
+        updateInterval = computeInterval(frameTimes.getSampleCount() > 0 ? frameTimes.getP95FrameNanos() : 0,
+            governor.getTargetFrameNanos());
+        if (tick % updateInterval == 0) {
+            updateSprites(PlatformProfile.getInstance().isConstrained() ? BUDGET_CONSTRAINED : BUDGET_DEFAULT);
+        }
+    }
+
+    /** Ticks between animation updates, more while frames miss the target. */
+    public static int computeInterval(long p95FrameNanos, long targetFrameNanos) {
+        if (p95FrameNanos > targetFrameNanos * 3 / 2) return 4;
+        if (p95FrameNanos > targetFrameNanos) return 2;
+        return 1;
+    }
+
+    public int getAnimatedCount() {
+        return sprites.length;
+    }
+
+    public int getLastActiveCount() {
+        return lastActive;
+    }
+
+    public int getLastUpdatedCount() {
+        return lastUpdated;
+    }
+
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    private void takeSprites(TextureMap textureMap, TextureAtlasSprite[] taken) {
+        Map<String, Integer> groups = new HashMap<>();
+        int[] groupOf = new int[taken.length];
+        fireGroup = -1;
+        for (int i = 0; i < taken.length; i++) {
+            String name = String.valueOf(taken[i].getIconName());
+            Integer group = groups.get(groupKey(name));
+            if (group == null) {
+                group = groups.size();
+                groups.put(groupKey(name), group);
+            }
+            groupOf[i] = group;
+            if (FIRE_SPRITE.equals(name)) {
+                fireGroup = group;
+            }
+        }
+
+        map = textureMap;
+        sprites = taken;
+        spriteGroup = groupOf;
+        groupMapped = new boolean[groups.size()];
+        groupLastSeen = new int[groups.size()];
+        Arrays.fill(groupLastSeen, Integer.MIN_VALUE / 2);
+        cursor = 0;
+        stateGroup = new int[0];
+        // The block models are baked after the stitch, the table waits for the next tick
+        mappingDirty = true;
+    }
+
+    private static String groupKey(String name) {
+        for (String suffix : COMPANION_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return name;
+    }
+
+    private void buildStateTable(Minecraft mc) {
+        mappingDirty = false;
+
+        Map<TextureAtlasSprite, Integer> groupOfSprite = new HashMap<>();
+        for (int i = 0; i < sprites.length; i++) {
+            groupOfSprite.put(sprites[i], spriteGroup[i]);
+        }
+
+        int maxId = 0;
+        for (IBlockState state : Block.BLOCK_STATE_IDS) {
+            maxId = Math.max(maxId, Block.BLOCK_STATE_IDS.get(state));
+        }
+        int[] table = new int[maxId + 1];
+        Arrays.fill(table, -1);
+        Arrays.fill(groupMapped, false);
+
+        BlockModelShapes shapes = mc.getBlockRendererDispatcher().getBlockModelShapes();
+        for (IBlockState state : Block.BLOCK_STATE_IDS) {
+            // The particle sprite, for animated blocks the sprite they are drawn with
+            Integer group = groupOfSprite.get(shapes.getTexture(state));
+            if (group != null) {
+                table[Block.BLOCK_STATE_IDS.get(state)] = group;
+                groupMapped[group] = true;
+            }
+        }
+        stateGroup = table;
+    }
+
+    private void scanSections(World world, Entity camera, int radius) {
+        if (sweepIndex >= sweepLength) {
+            buildSweep(camera, radius);
+        }
+
+        int scanned = 0;
+        int[] table = stateGroup;
+        while (sweepIndex < sweepLength && scanned < SECTIONS_PER_TICK) {
+            int chunkX = sweep[sweepIndex];
+            int sectionY = sweep[sweepIndex + 1];
+            int chunkZ = sweep[sweepIndex + 2];
+            sweepIndex += 3;
+
+            if (!world.getChunkProvider().chunkExists(chunkX, chunkZ)) continue;
+            ExtendedBlockStorage storage = world.getChunkFromChunkCoords(chunkX, chunkZ).getBlockStorageArray()[sectionY];
+            // Empty sections cost nothing and do not count
+            if (storage == null || storage.isEmpty()) continue;
+            scanned++;
+
+            for (char id : storage.getData()) {
+                if (id < table.length && table[id] >= 0) {
+                    groupLastSeen[table[id]] = tick;
+                }
+            }
+        }
+    }
+
+    // Nearest rings first, sections behind the camera only when close
+    private void buildSweep(Entity camera, int radius) {
+        int side = 2 * radius + 1;
+        if (sweep.length < side * side * 16 * 3) {
+            sweep = new int[side * side * 16 * 3];
+        }
+        sweepLength = 0;
+        sweepIndex = 0;
+
+        Vec3 look = camera.getLook(1.0f);
+        int cameraX = (int) Math.floor(camera.posX) >> 4;
+        int cameraZ = (int) Math.floor(camera.posZ) >> 4;
+        double eyeY = camera.posY + camera.getEyeHeight();
+        for (int ring = 0; ring <= radius; ring++) {
+            for (int dx = -ring; dx <= ring; dx++) {
+                for (int dz = -ring; dz <= ring; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != ring) continue;
+
+                    int chunkX = cameraX + dx;
+                    int chunkZ = cameraZ + dz;
+                    for (int sectionY = 0; sectionY < 16; sectionY++) {
+                        double x = (chunkX << 4) + 8 - camera.posX;
+                        double y = (sectionY << 4) + 8 - eyeY;
+                        double z = (chunkZ << 4) + 8 - camera.posZ;
+                        double distanceSq = x * x + y * y + z * z;
+                        if (distanceSq > NEAR_DISTANCE_SQ
+                                && (x * look.xCoord + y * look.yCoord + z * look.zCoord) < VIEW_COS * Math.sqrt(distanceSq)) {
+                            continue;
+                        }
+                        sweep[sweepLength++] = chunkX;
+                        sweep[sweepLength++] = sectionY;
+                        sweep[sweepLength++] = chunkZ;
+                    }
+                }
+            }
+        }
+    }
+
+    // Burning entities are drawn with the fire sprites
+    private void checkBurningEntities(World world, Entity camera) {
+        if (fireGroup < 0) return;
+
+        for (Entity entity : world.loadedEntityList) {
+            if (entity.isBurning() && entity.getDistanceSq(camera.posX, camera.posY, camera.posZ) < NEAR_DISTANCE_SQ) {
+                groupLastSeen[fireGroup] = tick;
+                return;
+            }
+        }
+    }
+
+    // Round robin from where the last update stopped, so sprites over the budget go first next time
+    private void updateSprites(int budget) {
+        GlStateManager.bindTexture(map.getGlTextureId());
+
+        int spent = 0;
+        int active = 0;
+        int updated = 0;
+        int next = cursor;
+        boolean full = false;
+        for (int n = 0; n < sprites.length; n++) {
+            int i = (cursor + n) % sprites.length;
+            int group = spriteGroup[i];
+            if (groupMapped[group] && tick - groupLastSeen[group] > VISIBLE_TICKS) continue;
+            active++;
+
+            TextureAtlasSprite sprite = sprites[i];
+            int cost = sprite.getIconWidth() * sprite.getIconHeight();
+            if (full || (spent > 0 && spent + cost > budget)) {
+                if (!full) {
+                    full = true;
+                    next = i;
+                }
+                continue;
+            }
+            sprite.updateAnimation();
+            spent += cost;
+            updated++;
+        }
+        cursor = next;
+        lastActive = active;
+        lastUpdated = updated;
+    }
+}
@@ -1,22 +1,76 @@
 package com.performan.texture;
 
+import com.performan.optimization.HotPathProfiler;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.client.renderer.texture.TextureMap;
+import net.minecraft.client.renderer.texture.TextureUtil;
+import net.minecraft.client.resources.IResource;
 import net.minecraft.client.resources.IResourceManager;
+import net.minecraft.client.resources.data.AnimationMetadataSection;
+import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.client.event.TextureStitchEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.List;
-import java.lang.reflect.Field;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Checks the frame data of every stitched sprite and replaces missing or truncated
+ * frames with blank ones, so animated sprites cannot fail while updating. With a
+ * reduced Texture Quality the block sprites are loaded through Forge's custom loader
+ * hook and scaled down before the stitch, so the atlas is only ever allocated at the
+ * smaller size. Sprite images are read and scaled on a small pool ahead of the stitch,
+ * large atlases are validated in parallel, and each stitch is timed.
+ */
 public class SafeTextureLoader {
-    private Field framesTextureDataField;
+    // Below this many sprites per worker, splitting costs more than it saves
+    private static final int SPRITES_PER_TASK = 256;
+    // Decoding and scaling a sprite costs far more than validating it
+    private static final int SCALED_SPRITES_PER_TASK = 32;
+    private static final int MAX_THREADS = 4;
+    // TextureMap.basePath of the block atlas
+    private static final String BLOCK_TEXTURE_PATH = "textures";
+
+    private static final int PROFILE_STITCH_POST = HotPathProfiler.getInstance().handler("SafeTextureLoader.onTextureStitchPost");
+
+    private final HotPathProfiler profiler = HotPathProfiler.getInstance();
+    private final SpriteDownsampler downsampler = SpriteDownsampler.getInstance();
+    private final int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+    // TextureMap.mapUploadedSprites and mapRegisteredSprites, resolved once
+    private MethodHandle uploadedSpritesGetter;
+    private MethodHandle registeredSpritesGetter;
+    private ExecutorService pool;
+    // Sprites loading scaled down in the current stitch
+    private final List<DownsampledSprite> downsampled = new ArrayList<>();
+
+    private long stitchStart = 0;
+
+    // Statistics of the last stitch
+    private int lastSprites = 0;
+    private int lastRepaired = 0;
+    private int lastFactor = 1;
+    private long lastStitchNanos = 0;
+    private long lastValidationNanos = 0;
 
     public SafeTextureLoader() {
         try {
-            framesTextureDataField = TextureAtlasSprite.class.getDeclaredField("framesTextureData");
-            framesTextureDataField.setAccessible(true);
+            uploadedSpritesGetter = MethodHandles.lookup().unreflectGetter(
+                ReflectionHelper.findField(TextureMap.class, "mapUploadedSprites", "field_94252_e"));
+            registeredSpritesGetter = MethodHandles.lookup().unreflectGetter(
+                ReflectionHelper.findField(TextureMap.class, "mapRegisteredSprites", "field_110574_e"));
         } catch (Exception e) {
             System.err.println("Failed to initialize texture loader: " + e.getMessage());
         }
@@ -24,46 +78,263 @@ public class SafeTextureLoader {
 
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public void onTextureStitchPre(TextureStitchEvent.Pre event) {
-        // Disable mipmap generation for the texture map
-        event.map.setMipmapLevels(0);
+        stitchStart = System.nanoTime();
+        downsampled.clear();
+    }
+
+    // Last, so sprites other mods register in Pre are included
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onTextureStitchPreLast(TextureStitchEvent.Pre event) {
+        if (registeredSpritesGetter == null || downsampler.getScale() == SpriteDownsampler.SCALE_FULL) return;
+        if (event.map != Minecraft.getMinecraft().getTextureMapBlocks()) return;
+
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, TextureAtlasSprite> registered = (Map<String, TextureAtlasSprite>) registeredSpritesGetter.invoke(event.map);
+            for (Map.Entry<String, TextureAtlasSprite> entry : registered.entrySet()) {
+                // Subclasses may load themselves, leave them alone
+                TextureAtlasSprite sprite = entry.getValue();
+                if (sprite == null || sprite.getClass() != TextureAtlasSprite.class) continue;
+
+                DownsampledSprite replacement = new DownsampledSprite(sprite, downsampler);
+                entry.setValue(replacement);
+                downsampled.add(replacement);
+            }
+        } catch (Throwable t) {
+            System.err.println("Failed to access texture sprites: " + t.getMessage());
+            return;
+        }
+
+        // The stitch then only copies the ready images into the sprites
+        IResourceManager manager = Minecraft.getMinecraft().getResourceManager();
+        runParallel(new ArrayList<TextureAtlasSprite>(downsampled), SCALED_SPRITES_PER_TASK,
+            sprite -> ((DownsampledSprite) sprite).prepare(manager));
     }
-    
+
     @SubscribeEvent(priority = EventPriority.LOWEST)
     public void onTextureStitchPost(TextureStitchEvent.Post event) {
+        long profileStart = profiler.begin(PROFILE_STITCH_POST);
+        try {
+            handleTextureStitchPost(event);
+        } finally {
+            profiler.end(PROFILE_STITCH_POST, profileStart);
+        }
+    }
+
+    private void handleTextureStitchPost(TextureStitchEvent.Post event) {
+        if (uploadedSpritesGetter == null) return;
+
+        long start = System.nanoTime();
+        List<TextureAtlasSprite> sprites;
         try {
-            // Get the sprites map using reflection since it's private
-            Field spritesField = TextureMap.class.getDeclaredField("mapUploadedSprites");
-            spritesField.setAccessible(true);
             @SuppressWarnings("unchecked")
-            Map<String, TextureAtlasSprite> sprites = (Map<String, TextureAtlasSprite>) spritesField.get(event.map);
-            
-            // Process each sprite
-            for (TextureAtlasSprite sprite : sprites.values()) {
-                if (sprite != null && sprite.getFrameCount() > 0) {
-                    ensureValidTextureData(sprite);
+            Map<String, TextureAtlasSprite> uploaded = (Map<String, TextureAtlasSprite>) uploadedSpritesGetter.invoke(event.map);
+            sprites = new ArrayList<>(uploaded.size());
+            for (TextureAtlasSprite sprite : uploaded.values()) {
+                if (sprite != null) sprites.add(sprite);
+            }
+        } catch (Throwable t) {
+            System.err.println("Failed to access texture sprites: " + t.getMessage());
+            return;
+        }
+
+        int repaired = runParallel(sprites, SPRITES_PER_TASK, this::ensureValidTextureData);
+        int factor = SpriteDownsampler.SCALE_FULL;
+        for (DownsampledSprite sprite : downsampled) {
+            // Whoever kept the registered sprite gets the stitched place
+            sprite.original.copyFrom(sprite);
+            factor = Math.max(factor, sprite.factor);
+        }
+        downsampled.clear();
+
+        long end = System.nanoTime();
+        lastSprites = sprites.size();
+        lastRepaired = repaired;
+        lastFactor = factor;
+        lastValidationNanos = end - start;
+        lastStitchNanos = stitchStart != 0 ? end - stitchStart : 0;
+        stitchStart = 0;
+    }
+
+    public int getLastSpriteCount() {
+        return lastSprites;
+    }
+
+    public int getLastRepairedCount() {
+        return lastRepaired;
+    }
+
+    /** 1 for a full resolution atlas, else the largest factor a sprite was scaled down by. */
+    public int getLastFactor() {
+        return lastFactor;
+    }
+
+    public long getLastStitchNanos() {
+        return lastStitchNanos;
+    }
+
+    public long getLastValidationNanos() {
+        return lastValidationNanos;
+    }
+
+    /**
+     * Stands in for a registered block sprite and loads it as vanilla would, but scaled
+     * down. Returning false from load lets the stitcher place it.
+     */
+    private static class DownsampledSprite extends TextureAtlasSprite {
+        final TextureAtlasSprite original;
+        private final SpriteDownsampler downsampler;
+        int factor = SpriteDownsampler.SCALE_FULL;
+        // Prepared ahead of the stitch, released once loaded
+        private BufferedImage image;
+        private AnimationMetadataSection animation;
+        private String failure;
+
+        DownsampledSprite(TextureAtlasSprite original, SpriteDownsampler downsampler) {
+            super(original.getIconName());
+            this.original = original;
+            this.downsampler = downsampler;
+        }
+
+        /** Reads and scales the image, on any thread. */
+        boolean prepare(IResourceManager manager) {
+            // As TextureMap.completeResourceLocation for level 0
+            ResourceLocation location = new ResourceLocation(getIconName());
+            ResourceLocation file = new ResourceLocation(location.getResourceDomain(),
+                BLOCK_TEXTURE_PATH + "/" + location.getResourcePath() + ".png");
+            try {
+                IResource resource = manager.getResource(file);
+                BufferedImage read = TextureUtil.readBufferedImage(resource.getInputStream());
+                animation = resource.getMetadata("animation");
+
+                factor = downsampler.chooseFactor(read.getWidth(), read.getHeight());
+                image = factor > SpriteDownsampler.SCALE_FULL ? SpriteDownsampler.downsample(read, factor) : read;
+            } catch (IOException | RuntimeException e) {
+                failure = "Failed to load texture " + file + ": " + e.getMessage();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean hasCustomLoader(IResourceManager manager, ResourceLocation location) {
+            return true;
+        }
+
+        @Override
+        public boolean load(IResourceManager manager, ResourceLocation location) {
+            // Registered too late to be prepared, or the pool failed
+            if (image == null && failure == null) {
+                prepare(manager);
+            }
+            try {
+                if (failure != null) {
+                    System.err.println(failure);
+                    return true;
                 }
+                // The atlas builds the mipmap levels from the first one
+                loadSprite(new BufferedImage[] {image}, animation);
+                return false;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to load texture " + getIconName() + ": " + e.getMessage());
+                return true;
+            } finally {
+                image = null;
+                animation = null;
+                failure = null;
             }
-        } catch (Exception e) {
-            System.err.println("Failed to access texture sprites: " + e.getMessage());
         }
     }
-    
-    private void ensureValidTextureData(TextureAtlasSprite sprite) {
+
+    private interface SpriteTask {
+        /** @return whether the sprite was changed */
+        boolean apply(TextureAtlasSprite sprite);
+    }
+
+    // Runs the task on every sprite, returns how many it changed
+    private int runParallel(List<TextureAtlasSprite> sprites, int spritesPerTask, SpriteTask task) {
+        AtomicInteger changed = new AtomicInteger(0);
+        int tasks = Math.min(threads, sprites.size() / spritesPerTask);
+        if (tasks <= 1) {
+            runRange(sprites, 0, sprites.size(), task, changed);
+            return changed.get();
+        }
+
+        // Each sprite is only touched by one task
+        ExecutorService executor = getPool();
+        List<Future<?>> futures = new ArrayList<>(tasks);
+        int perTask = (sprites.size() + tasks - 1) / tasks;
+        for (int from = perTask; from < sprites.size(); from += perTask) {
+            int start = from;
+            int end = Math.min(sprites.size(), from + perTask);
+            futures.add(executor.submit(() -> runRange(sprites, start, end, task, changed)));
+        }
+        // The client thread takes the first share instead of waiting
+        runRange(sprites, 0, Math.min(sprites.size(), perTask), task, changed);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                System.err.println("Texture processing failed: " + e.getMessage());
+            }
+        }
+        return changed.get();
+    }
+
+    private void runRange(List<TextureAtlasSprite> sprites, int from, int to, SpriteTask task, AtomicInteger changed) {
+        for (int i = from; i < to; i++) {
+            TextureAtlasSprite sprite = sprites.get(i);
+            if (task.apply(sprite)) {
+                changed.incrementAndGet();
+            }
+        }
+    }
+
+    // Replaces missing or short frames with blank ones, returns whether any were
+    private boolean ensureValidTextureData(TextureAtlasSprite sprite) {
+        if (sprite.getFrameCount() == 0) return false;
+
         try {
-            if (sprite.getFrameTextureData(0) == null && framesTextureDataField != null) {
-                // Create a blank texture if data is missing
-                int[][] data = new int[1][];
-                data[0] = new int[sprite.getIconWidth() * sprite.getIconHeight()];
-                
-                @SuppressWarnings("unchecked")
-                List<int[][]> framesTextureData = (List<int[][]>) framesTextureDataField.get(sprite);
-                if (framesTextureData != null) {
-                    framesTextureData.clear();
-                    framesTextureData.add(data);
+            int pixels = sprite.getIconWidth() * sprite.getIconHeight();
+            int frameCount = sprite.getFrameCount();
+            List<int[][]> frames = null;
+            for (int i = 0; i < frameCount; i++) {
+                int[][] frame = sprite.getFrameTextureData(i);
+                boolean valid = frame != null && frame.length > 0 && frame[0] != null && frame[0].length >= pixels;
+                if (!valid && frames == null) {
+                    // Copy the frames checked so far
+                    frames = new ArrayList<>(frameCount);
+                    for (int j = 0; j < i; j++) {
+                        frames.add(sprite.getFrameTextureData(j));
+                    }
+                }
+                if (frames != null) {
+                    frames.add(valid ? frame : new int[][] {new int[pixels]});
                 }
             }
+            if (frames == null) return false;
+
+            sprite.setFramesTextureData(frames);
+            return true;
         } catch (Exception e) {
             System.err.println("Failed to ensure valid texture data for sprite: " + sprite.getIconName());
+            return false;
+        }
+    }
+
+    private synchronized ExecutorService getPool() {
+        if (pool == null) {
+            AtomicInteger count = new AtomicInteger(0);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "Performan texture worker " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            // Stitches are rare, the threads exit in between
+            executor.allowCoreThreadTimeOut(true);
+            pool = executor;
         }
+        return pool;
     }
-}
\ No newline at end of file
+}
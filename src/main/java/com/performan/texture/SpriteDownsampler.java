@@ -0,0 +1,151 @@
+package com.performan.texture;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Texture Quality: scales sprite images down by 2 or 4 with a box filter as they are
+ * loaded, so the atlas and the frame data kept on the heap shrink by 4 or 16 times.
+ * The factor is lowered per sprite until it stays at vanilla resolution, so only
+ * high resolution textures are affected.
+ */
+public class SpriteDownsampler {
+    public static final int SCALE_FULL = 1;
+    public static final int SCALE_HALF = 2;
+    public static final int SCALE_QUARTER = 4;
+
+    private static final String SETTINGS_FILE = "textures.properties";
+    private static final int MIN_RESOLUTION = 16; // vanilla sprite size
+
+    private static final SpriteDownsampler INSTANCE = new SpriteDownsampler();
+
+    private File file;
+    private volatile int scale = SCALE_FULL;
+
+    public static SpriteDownsampler getInstance() {
+        return INSTANCE;
+    }
+
+    /** Reads the saved scale from the given directory. */
+    public synchronized void load(File directory) {
+        file = new File(directory, SETTINGS_FILE);
+        if (!file.isFile()) return;
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+            scale = normalize(Integer.parseInt(properties.getProperty("scale", "1")));
+        } catch (Exception e) {
+            System.err.println("Failed to read texture settings: " + e.getMessage());
+        }
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Sets and saves the scale, 1, 2 or 4. The atlas changes on the next stitch.
+     *
+     * @return whether the scale changed
+     */
+    public synchronized boolean setScale(int newScale) {
+        newScale = normalize(newScale);
+        if (newScale == scale) return false;
+
+        scale = newScale;
+        if (file != null) {
+            save();
+        }
+        return true;
+    }
+
+    /**
+     * The factor to scale an image of this size by, at most the scale. Scaled sprites
+     * stay multiples of the vanilla resolution, so frames of an animation strip stay
+     * whole and the atlas keeps its mipmap levels.
+     */
+    public int chooseFactor(int width, int height) {
+        int factor = scale;
+        while (factor > SCALE_FULL && Integer.lowestOneBit(width | height) / factor < MIN_RESOLUTION) {
+            factor /= 2;
+        }
+        return factor;
+    }
+
+    /** Scales a sprite image down by factor, an animation strip as a whole. */
+    public static BufferedImage downsample(BufferedImage image, int factor) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int scaledWidth = scaledSize(width, factor);
+        int scaledHeight = scaledSize(height, factor);
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        BufferedImage scaled = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB);
+        scaled.setRGB(0, 0, scaledWidth, scaledHeight,
+            scale(pixels, width, height, scaledWidth, scaledHeight), 0, scaledWidth);
+        return scaled;
+    }
+
+    public static int scaledSize(int size, int factor) {
+        return Math.max(1, size / factor);
+    }
+
+    /** Box filter, colours are weighted by alpha so transparent pixels do not darken edges. */
+    public static int[] scale(int[] pixels, int width, int height, int scaledWidth, int scaledHeight) {
+        int blockWidth = Math.max(1, width / scaledWidth);
+        int blockHeight = Math.max(1, height / scaledHeight);
+        int count = blockWidth * blockHeight;
+        int[] scaled = new int[scaledWidth * scaledHeight];
+
+        for (int y = 0; y < scaledHeight; y++) {
+            for (int x = 0; x < scaledWidth; x++) {
+                int alpha = 0;
+                long red = 0;
+                long green = 0;
+                long blue = 0;
+                for (int by = 0; by < blockHeight; by++) {
+                    int row = (y * blockHeight + by) * width + x * blockWidth;
+                    for (int bx = 0; bx < blockWidth; bx++) {
+                        int pixel = pixels[row + bx];
+                        int a = pixel >>> 24;
+                        alpha += a;
+                        red += ((pixel >> 16) & 0xFF) * a;
+                        green += ((pixel >> 8) & 0xFF) * a;
+                        blue += (pixel & 0xFF) * a;
+                    }
+                }
+                if (alpha > 0) {
+                    scaled[y * scaledWidth + x] = (alpha / count) << 24 | (int) (red / alpha) << 16
+                        | (int) (green / alpha) << 8 | (int) (blue / alpha);
+                }
+            }
+        }
+        return scaled;
+    }
+
+    private void save() {
+        Properties properties = new Properties();
+        properties.setProperty("scale", Integer.toString(scale));
+
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("Cannot create " + directory);
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "Performan texture quality, sprites are scaled down by this factor");
+        } catch (Exception e) {
+            System.err.println("Failed to write texture settings: " + e.getMessage());
+        }
+    }
+
+    private static int normalize(int scale) {
+        return scale >= SCALE_QUARTER ? SCALE_QUARTER : scale >= SCALE_HALF ? SCALE_HALF : SCALE_FULL;
+    }
+}
@@ -0,0 +1,135 @@
+package com.performan.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class ExplosionSolverTest {
+    private static final float[] SIZES = {4.0f, 8.0f, 16.0f};
+
+    @Test
+    public void serialMatchesReference() {
+        for (float size : SIZES) {
+            check(size, false, null);
+        }
+    }
+
+    @Test
+    public void parallelMatchesReference() {
+        for (float size : SIZES) {
+            check(size, true, null);
+        }
+    }
+
+    @Test
+    public void filterMatchesReference() {
+        // Vetoes a fixed pattern of blocks, as an exploder's verifyExplosion would
+        ExplosionSolver.BlockFilter filter = (x, y, z, power) -> ((x * 7 + y * 13 + z * 5) & 3) != 0;
+        for (float size : SIZES) {
+            check(size, false, filter);
+        }
+    }
+
+    @Test
+    public void solverIsReusable() {
+        ExplosionSolver solver = new ExplosionSolver();
+        SyntheticWorld world = new SyntheticWorld(42L, 0.5, 64.5, 0.5);
+        for (float size : SIZES) {
+            float[] randoms = randoms(size);
+            long[] expected = ExplosionSolver.solveReference(0.5, 64.5, 0.5, size, randoms, world, null);
+            assertEquals(firstOccurrences(expected),
+                firstOccurrences(solver.solve(0.5, 64.5, 0.5, size, randoms, world, null, false)));
+        }
+    }
+
+    @Test
+    public void packRoundTrips() {
+        int[][] positions = {{0, 0, 0}, {-1, 255, -1}, {29999999, 128, -29999999}, {-30000000, 0, 30000000 - 1}};
+        for (int[] position : positions) {
+            long packed = ExplosionSolver.pack(position[0], position[1], position[2]);
+            assertEquals(position[0], ExplosionSolver.unpackX(packed));
+            assertEquals(position[1], ExplosionSolver.unpackY(packed));
+            assertEquals(position[2], ExplosionSolver.unpackZ(packed));
+        }
+    }
+
+    private static void check(float size, boolean parallel, ExplosionSolver.BlockFilter filter) {
+        // A few worlds and blast centers per size, including one off the block grid
+        double[][] origins = {{0.5, 64.5, 0.5}, {-17.25, 80.0, 33.75}, {1000.5, 3.5, -1000.5}};
+        for (int i = 0; i < origins.length; i++) {
+            double[] origin = origins[i];
+            SyntheticWorld world = new SyntheticWorld(i * 31L + (long) size, origin[0], origin[1], origin[2]);
+            float[] randoms = randoms(size + i);
+
+            long[] expected = ExplosionSolver.solveReference(origin[0], origin[1], origin[2], size, randoms, world, filter);
+            long[] actual = new ExplosionSolver().solve(origin[0], origin[1], origin[2], size, randoms, world, filter, parallel);
+
+            List<Long> expectedOrder = firstOccurrences(expected);
+            assertTrue("blast of size " + size + " destroyed nothing", !expectedOrder.isEmpty());
+            assertEquals("size " + size + (parallel ? " parallel" : " serial") + " at origin " + i,
+                expectedOrder, firstOccurrences(actual));
+        }
+    }
+
+    private static float[] randoms(float seed) {
+        Random random = new Random(Float.floatToIntBits(seed));
+        float[] randoms = new float[ExplosionSolver.RAY_COUNT];
+        for (int i = 0; i < randoms.length; i++) {
+            randoms[i] = random.nextFloat();
+        }
+        return randoms;
+    }
+
+    // The order the caller's set sees each position first, as FastExplosion.verify compares
+    private static List<Long> firstOccurrences(long[] positions) {
+        Set<Long> seen = new LinkedHashSet<>();
+        for (long packed : positions) {
+            seen.add(packed);
+        }
+        return new ArrayList<>(seen);
+    }
+
+    // Air, dirt, stone and obsidian from a hash of the position, nothing below y 0.
+    // The blocks next to the blast are air, so no blast is smothered at the start.
+    private static class SyntheticWorld implements ExplosionSolver.BlockAccess {
+        private static final float[] RESISTANCES = {ExplosionSolver.AIR, 2.5f, 30.0f, 6000.0f};
+
+        private final long seed;
+        private final int centerX;
+        private final int centerY;
+        private final int centerZ;
+
+        SyntheticWorld(long seed, double x, double y, double z) {
+            this.seed = seed;
+            this.centerX = (int) Math.floor(x);
+            this.centerY = (int) Math.floor(y);
+            this.centerZ = (int) Math.floor(z);
+        }
+
+        @Override
+        public float getResistance(int x, int y, int z) {
+            if (y < 0 || y >= 256) return ExplosionSolver.AIR;
+            if (Math.abs(x - centerX) <= 1 && Math.abs(y - centerY) <= 1 && Math.abs(z - centerZ) <= 1) {
+                return ExplosionSolver.AIR;
+            }
+
+            long hash = seed;
+            hash = hash * 0x9E3779B97F4A7C15L + x;
+            hash = hash * 0x9E3779B97F4A7C15L + y;
+            hash = hash * 0x9E3779B97F4A7C15L + z;
+            hash ^= hash >>> 29;
+            int roll = (int) ((hash & 0x7FFFFFFFL) % 100);
+            // Mostly air and soft blocks, so rays travel far enough to matter
+            if (roll < 55) return RESISTANCES[0];
+            if (roll < 85) return RESISTANCES[1];
+            if (roll < 98) return RESISTANCES[2];
+            return RESISTANCES[3];
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.performan.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+public class TraceReplayerTest {
+    private static final int RENDER_DISTANCE = 12;
+    private static final int FRAME_NANOS = 16000000; // faster than the 60 FPS target
+    private static final int FRAMES_PER_TICK = 3;
+    private static final long TICK_NANOS = (long) FRAME_NANOS * FRAMES_PER_TICK;
+
+    @Test
+    public void walkingIsNotFastMovement() throws IOException {
+        SyntheticTrace trace = new SyntheticTrace();
+        // 0.2 blocks per tick, one block per CPUReduce run
+        for (int tick = 1; tick <= 200; tick++) {
+            trace.tick(tick * 0.2, 0);
+        }
+
+        TraceReplayer.Result result = trace.replay();
+        assertEquals(200 * FRAMES_PER_TICK, result.frames);
+        for (TraceReplayer.Change change : result.timeline) {
+            assertEquals(RENDER_DISTANCE, change.renderDistance);
+            assertEquals(CPUReduce.computeProcessLimit(60.0, false), change.processLimit);
+        }
+    }
+
+    @Test
+    public void fastMovementIsSeenAcrossTickInterval() throws IOException {
+        SyntheticTrace trace = new SyntheticTrace();
+        // One block per tick is below the threshold per tick, but not per CPUReduce run.
+        // The heading turns a right angle every run, so the path is never predictable.
+        double x = 0;
+        double z = 0;
+        int ticks = 0;
+        for (int leg = 0; leg < 8; leg++) {
+            for (int i = 0; i < CPUReduce.TICK_INTERVAL; i++) {
+                if (leg % 2 == 0) x++; else z++;
+                trace.tick(x, z);
+                ticks++;
+            }
+        }
+        long stopNanos = ticks * TICK_NANOS;
+        for (int i = 0; i < 200; i++) {
+            trace.tick(x, z);
+        }
+
+        TraceReplayer.Result result = trace.replay();
+        TraceReplayer.Change capped = null;
+        TraceReplayer.Change released = null;
+        for (TraceReplayer.Change change : result.timeline) {
+            if (change.renderDistance == CPUReduce.FAST_MOVEMENT_RENDER_DISTANCE && capped == null) {
+                capped = change;
+            } else if (capped != null && change.renderDistance == RENDER_DISTANCE && released == null) {
+                released = change;
+            }
+        }
+        assertTrue("fast movement never capped the render distance", capped != null);
+        assertTrue("render distance cap never released", released != null);
+        // The cooldown counts CPUReduce runs, not ticks, and the governor applies it on the next frame
+        long cooldownNanos = CPUReduce.FAST_MOVEMENT_COOLDOWN * CPUReduce.TICK_INTERVAL * TICK_NANOS;
+        assertEquals(stopNanos + cooldownNanos + FRAME_NANOS, released.timeNanos);
+    }
+
+    @Test
+    public void truncatedTraceEndsAtLastRecord() throws IOException {
+        SyntheticTrace trace = new SyntheticTrace();
+        for (int tick = 1; tick <= 10; tick++) {
+            trace.tick(0, 0);
+        }
+        // A crash mid-write leaves half a record behind
+        trace.out.writeByte(TraceRecorder.TICK);
+        trace.out.writeInt(0);
+
+        TraceReplayer.Result result = trace.replay();
+        assertEquals(10 * FRAMES_PER_TICK, result.frames);
+        assertEquals(10 * TICK_NANOS, result.durationNanos);
+    }
+
+    // Frames and ticks in the TraceRecorder format, at a steady frame time
+    private static class SyntheticTrace {
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(records);
+
+        SyntheticTrace() throws IOException {
+            out.writeInt(TraceRecorder.MAGIC);
+            out.writeShort(TraceRecorder.VERSION);
+            out.writeByte(TraceRecorder.SETTINGS);
+            out.writeByte(RENDER_DISTANCE);
+            out.writeByte(0);
+            out.writeBoolean(true);
+            out.writeByte(4);
+            out.writeBoolean(true);
+            out.writeLong(1000000000L / 60);
+        }
+
+        void tick(double x, double z) throws IOException {
+            for (int i = 0; i < FRAMES_PER_TICK; i++) {
+                out.writeByte(TraceRecorder.FRAME);
+                out.writeInt(FRAME_NANOS);
+                out.writeFloat(0.0f);
+                out.writeFloat(0.0f);
+            }
+            out.writeByte(TraceRecorder.TICK);
+            out.writeDouble(x);
+            out.writeDouble(z);
+        }
+
+        byte[] toByteArray() throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                records.writeTo(gzip);
+            }
+            return compressed.toByteArray();
+        }
+
+        TraceReplayer.Result replay() throws IOException {
+            return TraceReplayer.replay(new ByteArrayInputStream(toByteArray()));
+        }
+    }
+}